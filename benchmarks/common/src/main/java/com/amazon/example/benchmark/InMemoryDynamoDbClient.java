@@ -0,0 +1,206 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.benchmark;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Minimal in-process stand-in for DynamoDB so that service level benchmarks run offline and reproducibly.
+ * Every table has a single string hash key; only the operations used by the user services are implemented.
+ */
+public class InMemoryDynamoDbClient implements DynamoDbClient {
+
+    private static final double CAPACITY_PER_ITEM = 0.5;
+
+    private final Map<String, String> keyAttributes = new ConcurrentHashMap<>();
+    private final Map<String, NavigableMap<String, Map<String, AttributeValue>>> tables = new ConcurrentHashMap<>();
+
+    public InMemoryDynamoDbClient withTable(String tableName, String keyAttribute) {
+        keyAttributes.put(tableName, keyAttribute);
+        tables.put(tableName, new ConcurrentSkipListMap<>());
+        return this;
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public GetItemResponse getItem(GetItemRequest request) {
+        Map<String, AttributeValue> item = table(request.tableName()).get(key(request.tableName(), request.key()));
+        return GetItemResponse.builder()
+                .item(item != null ? project(item, projection(request.attributesToGet(), request.projectionExpression(), request.expressionAttributeNames())) : null)
+                .build();
+    }
+
+    @Override
+    public PutItemResponse putItem(PutItemRequest request) {
+        Map<String, AttributeValue> old = table(request.tableName()).put(key(request.tableName(), request.item()), new HashMap<>(request.item()));
+        return PutItemResponse.builder()
+                .attributes(request.returnValues() == ReturnValue.ALL_OLD ? old : null)
+                .build();
+    }
+
+    @Override
+    public DeleteItemResponse deleteItem(DeleteItemRequest request) {
+        Map<String, AttributeValue> old = table(request.tableName()).remove(key(request.tableName(), request.key()));
+        return DeleteItemResponse.builder()
+                .attributes(request.returnValues() == ReturnValue.ALL_OLD ? old : null)
+                .build();
+    }
+
+    @Override
+    public ScanResponse scan(ScanRequest request) {
+        NavigableMap<String, Map<String, AttributeValue>> table = table(request.tableName());
+        if (request.exclusiveStartKey() != null && !request.exclusiveStartKey().isEmpty()) {
+            table = table.tailMap(key(request.tableName(), request.exclusiveStartKey()), false);
+        }
+
+        int limit = request.limit() != null ? request.limit() : Integer.MAX_VALUE;
+        List<String> attributes = projection(request.attributesToGet(), request.projectionExpression(), request.expressionAttributeNames());
+        List<Map<String, AttributeValue>> items = new ArrayList<>(Math.min(limit, 1024));
+        String lastKey = null;
+        for (Map.Entry<String, Map<String, AttributeValue>> entry : table.entrySet()) {
+            if (request.totalSegments() != null
+                    && Math.floorMod(entry.getKey().hashCode(), request.totalSegments()) != request.segment()) {
+                continue;
+            }
+            if (items.size() == limit) {
+                break;
+            }
+            items.add(project(entry.getValue(), attributes));
+            lastKey = entry.getKey();
+        }
+
+        boolean more = lastKey != null && items.size() == limit && table.higherKey(lastKey) != null;
+        return ScanResponse.builder()
+                .items(items)
+                .count(items.size())
+                .lastEvaluatedKey(more ? Map.of(keyAttributes.get(request.tableName()), AttributeValue.builder().s(lastKey).build()) : null)
+                .consumedCapacity(ConsumedCapacity.builder()
+                        .tableName(request.tableName())
+                        .capacityUnits(items.size() * CAPACITY_PER_ITEM)
+                        .build())
+                .build();
+    }
+
+    @Override
+    public BatchWriteItemResponse batchWriteItem(BatchWriteItemRequest request) {
+        for (Map.Entry<String, List<WriteRequest>> entry : request.requestItems().entrySet()) {
+            NavigableMap<String, Map<String, AttributeValue>> table = table(entry.getKey());
+            for (WriteRequest write : entry.getValue()) {
+                if (write.putRequest() != null) {
+                    table.put(key(entry.getKey(), write.putRequest().item()), new HashMap<>(write.putRequest().item()));
+                } else {
+                    table.remove(key(entry.getKey(), write.deleteRequest().key()));
+                }
+            }
+        }
+        return BatchWriteItemResponse.builder().build();
+    }
+
+    @Override
+    public BatchGetItemResponse batchGetItem(BatchGetItemRequest request) {
+        Map<String, List<Map<String, AttributeValue>>> responses = new HashMap<>();
+        for (Map.Entry<String, KeysAndAttributes> entry : request.requestItems().entrySet()) {
+            NavigableMap<String, Map<String, AttributeValue>> table = table(entry.getKey());
+            List<Map<String, AttributeValue>> items = new ArrayList<>();
+            KeysAndAttributes keys = entry.getValue();
+            List<String> attributes = projection(keys.attributesToGet(), keys.projectionExpression(), keys.expressionAttributeNames());
+            for (Map<String, AttributeValue> key : keys.keys()) {
+                Map<String, AttributeValue> item = table.get(key(entry.getKey(), key));
+                if (item != null) {
+                    items.add(project(item, attributes));
+                }
+            }
+            responses.put(entry.getKey(), items);
+        }
+        return BatchGetItemResponse.builder().responses(responses).build();
+    }
+
+    private NavigableMap<String, Map<String, AttributeValue>> table(String tableName) {
+        NavigableMap<String, Map<String, AttributeValue>> table = tables.get(tableName);
+        if (table == null) {
+            throw new IllegalArgumentException("Unknown table " + tableName);
+        }
+        return table;
+    }
+
+    private String key(String tableName, Map<String, AttributeValue> item) {
+        return item.get(keyAttributes.get(tableName)).s();
+    }
+
+    /**
+     * Resolves a plain list projection such as {@code #a, #b}; filter expressions are not supported.
+     */
+    private static List<String> projection(List<String> attributesToGet, String projectionExpression, Map<String, String> names) {
+        if (projectionExpression == null) {
+            return attributesToGet;
+        }
+
+        List<String> attributes = new ArrayList<>();
+        for (String attribute : projectionExpression.split(",")) {
+            String name = attribute.trim();
+            attributes.add(names.getOrDefault(name, name));
+        }
+        return attributes;
+    }
+
+    private static Map<String, AttributeValue> project(Map<String, AttributeValue> item, List<String> attributes) {
+        if (attributes == null || attributes.isEmpty()) {
+            return item;
+        }
+
+        Map<String, AttributeValue> projected = new HashMap<>(attributes.size() * 2);
+        for (String attribute : attributes) {
+            AttributeValue value = item.get(attribute);
+            if (value != null) {
+                projected.put(attribute, value);
+            }
+        }
+        return projected;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.resource;
+
+import com.amazon.example.pojo.User;
+import com.amazon.example.pojo.UserPage;
+import com.amazon.example.service.BenchmarkServices;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.json.bind.Jsonb;
+import javax.json.bind.JsonbBuilder;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON-B serialization cost of the {@link UserResource} responses: a single user and user pages of growing size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JsonbSerializationBenchmark {
+
+    @Param({"1", "100", "10000", "100000"})
+    int users;
+
+    private Jsonb jsonb;
+    private User user;
+    private UserPage page;
+
+    @Setup
+    public void setUp() {
+        jsonb = JsonbBuilder.create();
+        List<User> list = BenchmarkServices.users(users);
+        user = list.get(0);
+        page = new UserPage(list, "Y3Vyc29y", 0.5 * users);
+    }
+
+    @Benchmark
+    public String user() {
+        return jsonb.toJson(user);
+    }
+
+    @Benchmark
+    public String page() {
+        return jsonb.toJson(page);
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import com.amazon.example.pojo.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.retry.RetryMode;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ResourceInUseException;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GetItem latency distribution of the SDK HTTP clients under concurrent load against DynamoDB Local, configured as
+ * in the Fargate {@code application.properties} and otherwise left at the SDK defaults, as Quarkus builds them.
+ * Sample mode reports p50, p99 and p99.9 per client.
+ * Start DynamoDB Local first, e.g. with {@code docker-compose up dynamodb-local} in {@code fargate}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Threads(32)
+@Fork(1)
+public class HttpClientBenchmark {
+
+    private static final int MAX_CONNECTIONS = 64;
+    private static final Duration CONNECTION_TTL = Duration.ofSeconds(60);
+    private static final Duration CONNECTION_MAX_IDLE = Duration.ofSeconds(30);
+
+    @Param({"url", "apache", "netty"})
+    String client;
+
+    @Param({"1000"})
+    int items;
+
+    private DynamoDbClient syncClient;
+    private DynamoDbAsyncClient asyncClient;
+    private UserService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        URI endpoint = URI.create(System.getProperty("dynamodb.endpoint", "http://localhost:8000"));
+        StaticCredentialsProvider credentials =
+                StaticCredentialsProvider.create(AwsBasicCredentials.create("sample-key", "sample-secret"));
+        ClientOverrideConfiguration overrides = ClientOverrideConfiguration.builder()
+                .retryPolicy(RetryMode.ADAPTIVE)
+                .apiCallTimeout(Duration.ofSeconds(10))
+                .apiCallAttemptTimeout(Duration.ofSeconds(3))
+                .build();
+
+        switch (client) {
+            case "url":
+                syncClient = DynamoDbClient.builder()
+                        .endpointOverride(endpoint).region(Region.US_EAST_1).credentialsProvider(credentials)
+                        .overrideConfiguration(overrides)
+                        .httpClient(UrlConnectionHttpClient.builder()
+                                .connectionTimeout(Duration.ofSeconds(2))
+                                .socketTimeout(Duration.ofSeconds(5))
+                                .build())
+                        .build();
+                break;
+            case "apache":
+                syncClient = DynamoDbClient.builder()
+                        .endpointOverride(endpoint).region(Region.US_EAST_1).credentialsProvider(credentials)
+                        .overrideConfiguration(overrides)
+                        .httpClient(ApacheHttpClient.builder()
+                                .maxConnections(MAX_CONNECTIONS)
+                                .connectionTimeToLive(CONNECTION_TTL)
+                                .connectionMaxIdleTime(CONNECTION_MAX_IDLE)
+                                .connectionTimeout(Duration.ofSeconds(2))
+                                .socketTimeout(Duration.ofSeconds(5))
+                                .build())
+                        .build();
+                break;
+            case "netty":
+                asyncClient = DynamoDbAsyncClient.builder()
+                        .endpointOverride(endpoint).region(Region.US_EAST_1).credentialsProvider(credentials)
+                        .overrideConfiguration(overrides)
+                        .httpClient(NettyNioAsyncHttpClient.builder()
+                                .maxConcurrency(MAX_CONNECTIONS)
+                                .connectionTimeToLive(CONNECTION_TTL)
+                                .connectionMaxIdleTime(CONNECTION_MAX_IDLE)
+                                .connectionTimeout(Duration.ofSeconds(2))
+                                .readTimeout(Duration.ofSeconds(5))
+                                .writeTimeout(Duration.ofSeconds(5))
+                                .build())
+                        .build();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown client " + client);
+        }
+
+        service = new UserService();
+        seed();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (syncClient != null) {
+            syncClient.close();
+        }
+        if (asyncClient != null) {
+            asyncClient.close();
+        }
+    }
+
+    @Benchmark
+    public GetItemResponse getItem() {
+        GetItemRequest request = service.getRequest("http-" + ThreadLocalRandom.current().nextInt(items));
+        return syncClient != null ? syncClient.getItem(request) : asyncClient.getItem(request).join();
+    }
+
+    private void seed() {
+        CreateTableRequest createTable = CreateTableRequest.builder()
+                .tableName(service.getTableName())
+                .billingMode(BillingMode.PAY_PER_REQUEST)
+                .attributeDefinitions(AttributeDefinition.builder()
+                        .attributeName(AbstractService.USER_ID_COL).attributeType(ScalarAttributeType.S).build())
+                .keySchema(KeySchemaElement.builder()
+                        .attributeName(AbstractService.USER_ID_COL).keyType(KeyType.HASH).build())
+                .build();
+        try {
+            if (syncClient != null) {
+                syncClient.createTable(createTable);
+            } else {
+                asyncClient.createTable(createTable).join();
+            }
+        } catch (ResourceInUseException exc) {
+            // table already exists, the seeded users are overwritten below
+        } catch (RuntimeException exc) {
+            if (!(exc.getCause() instanceof ResourceInUseException)) {
+                throw exc;
+            }
+        }
+
+        for (int i = 0; i < items; i++) {
+            User user = new User("http-" + i, "user" + i, "First" + i, "Last" + i, 18 + i % 60);
+            if (syncClient != null) {
+                syncClient.putItem(service.putRequest(user));
+            } else {
+                asyncClient.putItem(service.putRequest(user)).join();
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import com.amazon.example.pojo.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.ResourceInUseException;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full-table read throughput of {@link UserService#findAll()} against DynamoDB Local as the number of scan
+ * segments grows. Start DynamoDB Local first, e.g. with {@code docker-compose up dynamodb-local} in {@code fargate}.
+ * <p>
+ * Items per second are {@code items} divided by the reported time per scan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParallelScanBenchmark {
+
+    @Param({"1", "2", "4", "8", "16"})
+    int segments;
+
+    @Param({"20000"})
+    int items;
+
+    @Param({"1000"})
+    int pageSize;
+
+    private DynamoDbClient client;
+    private UserService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        client = DynamoDbClient.builder()
+                .endpointOverride(URI.create(System.getProperty("dynamodb.endpoint", "http://localhost:8000")))
+                .region(Region.US_EAST_1)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("sample-key", "sample-secret")))
+                .httpClient(UrlConnectionHttpClient.create())
+                .build();
+
+        service = new UserService();
+        service.dynamoDB = client;
+        service.scanSegments = segments;
+        service.scanPageSize = pageSize;
+        service.executorThreads = segments;
+        service.init();
+
+        seed();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdown();
+        client.close();
+    }
+
+    @Benchmark
+    public List<User> findAll() {
+        return service.findAll();
+    }
+
+    private void seed() {
+        try {
+            client.createTable(CreateTableRequest.builder()
+                    .tableName(service.getTableName())
+                    .billingMode(BillingMode.PAY_PER_REQUEST)
+                    .attributeDefinitions(AttributeDefinition.builder()
+                            .attributeName(AbstractService.USER_ID_COL).attributeType(ScalarAttributeType.S).build())
+                    .keySchema(KeySchemaElement.builder()
+                            .attributeName(AbstractService.USER_ID_COL).keyType(KeyType.HASH).build())
+                    .build());
+        } catch (ResourceInUseException exc) {
+            // table already exists, the seeded users are overwritten below
+        }
+
+        List<WriteRequest> chunk = new ArrayList<>(25);
+        for (int i = 0; i < items; i++) {
+            User user = new User("bench-" + i, "user" + i, "First" + i, "Last" + i, 18 + i % 60);
+            chunk.add(WriteRequest.builder()
+                    .putRequest(PutRequest.builder().item(service.putRequest(user).item()).build())
+                    .build());
+            if (chunk.size() == 25 || i == items - 1) {
+                client.batchWriteItem(BatchWriteItemRequest.builder()
+                        .requestItems(Map.of(service.getTableName(), chunk))
+                        .build());
+                chunk = new ArrayList<>(25);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import com.amazon.example.pojo.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building the DynamoDB requests in {@link AbstractService}, paid once per call or per written item.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RequestBuilderBenchmark {
+
+    private final UserService service = new UserService();
+    private final User user = new User("id-1", "jdoe", "John", "Doe", 42);
+
+    @Benchmark
+    public PutItemRequest putRequest() {
+        return service.putRequest(user);
+    }
+
+    @Benchmark
+    public GetItemRequest getRequest() {
+        return service.getRequest(user.getUserId());
+    }
+
+    @Benchmark
+    public ScanRequest scanRequest() {
+        return service.scanRequest(AbstractService.DEFAULT_PAGE_SIZE, null);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import com.amazon.example.pojo.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link UserCodec} with the mapping code it replaced when decoding a scan's worth of items and when
+ * building the put item for each user.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class UserCodecBenchmark {
+
+    @Param({"100", "10000"})
+    int items;
+
+    private List<User> users;
+    private List<Map<String, AttributeValue>> scanItems;
+
+    @Setup
+    public void setUp() {
+        users = new ArrayList<>(items);
+        scanItems = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            User user = new User("id-" + i, "user" + i, "First" + i, "Last" + i, 18 + i % 60);
+            users.add(user);
+            scanItems.add(UserCodec.toItem(user));
+        }
+    }
+
+    @Benchmark
+    public void decodeLegacy(Blackhole blackhole) {
+        for (Map<String, AttributeValue> item : scanItems) {
+            blackhole.consume(legacyFrom(item));
+        }
+    }
+
+    @Benchmark
+    public void decodeCodec(Blackhole blackhole) {
+        for (Map<String, AttributeValue> item : scanItems) {
+            blackhole.consume(UserCodec.fromItem(item));
+        }
+    }
+
+    @Benchmark
+    public void encodeLegacy(Blackhole blackhole) {
+        for (User user : users) {
+            blackhole.consume(legacyItem(user));
+        }
+    }
+
+    @Benchmark
+    public void encodeCodec(Blackhole blackhole) {
+        for (User user : users) {
+            blackhole.consume(UserCodec.toItem(user));
+        }
+    }
+
+    // User.from before the codec was introduced
+    private static User legacyFrom(Map<String, AttributeValue> item) {
+        User user = new User();
+        if (item != null && !item.isEmpty()) {
+            user.setUserId(item.get(AbstractService.USER_ID_COL).s());
+            user.setUserName(item.get(AbstractService.USER_USERNAME_COL).s());
+            user.setFirstName(item.get(AbstractService.USER_FIRSTNAME_COL).s());
+            user.setLastName(item.get(AbstractService.USER_LASTNAME_COL).s());
+            user.setAge(Integer.parseInt(item.get(AbstractService.USER_AGE_COL).n()));
+        }
+        return user;
+    }
+
+    // AbstractService.putRequest before the codec was introduced
+    private static Map<String, AttributeValue> legacyItem(User user) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put(AbstractService.USER_USERNAME_COL, AttributeValue.builder().s(user.getUserName()).build());
+        item.put(AbstractService.USER_FIRSTNAME_COL, AttributeValue.builder().s(user.getFirstName()).build());
+        item.put(AbstractService.USER_LASTNAME_COL, AttributeValue.builder().s(user.getLastName()).build());
+        item.put(AbstractService.USER_ID_COL, AttributeValue.builder().s(user.getUserId()).build());
+        item.put(AbstractService.USER_AGE_COL, AttributeValue.builder().n(Integer.valueOf(user.getAge()).toString()).build());
+        return item;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import com.amazon.example.benchmark.InMemoryDynamoDbClient;
+import com.amazon.example.pojo.BatchItemResult;
+import com.amazon.example.pojo.User;
+import com.amazon.example.pojo.UserPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end throughput of the Fargate {@link UserService} against {@link InMemoryDynamoDbClient}, i.e. everything
+ * except the network round trip: request building, item mapping, caching and batching.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class UserServiceBenchmark {
+
+    @Param({"1", "100", "10000", "100000"})
+    int users;
+
+    @Param({"false", "true"})
+    boolean cache;
+
+    private UserService service;
+    private List<User> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryDynamoDbClient client = BenchmarkServices.inMemoryClient();
+        service = BenchmarkServices.userService(client, cache);
+        for (User user : BenchmarkServices.users(users)) {
+            client.putItem(service.putRequest(user));
+        }
+        batch = BenchmarkServices.users(100);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public User get() {
+        return service.get("id-" + ThreadLocalRandom.current().nextInt(users));
+    }
+
+    @Benchmark
+    public UserPage findPage() {
+        return service.findPage(AbstractService.DEFAULT_PAGE_SIZE, null);
+    }
+
+    @Benchmark
+    public List<User> findAll() {
+        return service.findAll();
+    }
+
+    @Benchmark
+    public List<BatchItemResult> addAll() {
+        return service.addAll(batch);
+    }
+}
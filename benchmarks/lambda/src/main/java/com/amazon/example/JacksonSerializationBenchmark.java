@@ -0,0 +1,80 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example;
+
+import com.amazon.example.pojo.User;
+import com.amazon.example.pojo.UserPage;
+import com.amazon.example.service.BenchmarkServices;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization cost of the {@link ProcessingLambda} responses, with an {@link ObjectMapper} configured
+ * like the handler's.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JacksonSerializationBenchmark {
+
+    @Param({"1", "100", "10000", "100000"})
+    int users;
+
+    private ObjectMapper mapper;
+    private User user;
+    private List<User> list;
+    private UserPage page;
+
+    @Setup
+    public void setUp() {
+        mapper = new ObjectMapper();
+        list = BenchmarkServices.users(users);
+        user = list.get(0);
+        page = new UserPage(list, "Y3Vyc29y", 0.5 * users);
+    }
+
+    @Benchmark
+    public String user() throws JsonProcessingException {
+        return mapper.writeValueAsString(user);
+    }
+
+    @Benchmark
+    public String list() throws JsonProcessingException {
+        return mapper.writeValueAsString(list);
+    }
+
+    @Benchmark
+    public String page() throws JsonProcessingException {
+        return mapper.writeValueAsString(page);
+    }
+}
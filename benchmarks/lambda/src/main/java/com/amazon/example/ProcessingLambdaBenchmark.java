@@ -0,0 +1,101 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example;
+
+import com.amazon.example.benchmark.InMemoryDynamoDbClient;
+import com.amazon.example.service.BenchmarkServices;
+import com.amazon.example.service.UserCache;
+import com.amazon.example.service.UserService;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end invocation cost of {@link ProcessingLambda} against {@link InMemoryDynamoDbClient}: routing,
+ * the service call and Jackson serialization of the response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ProcessingLambdaBenchmark {
+
+    @Param({"1", "100", "10000", "100000"})
+    int users;
+
+    @Param({"100", "1000"})
+    int pageSize;
+
+    private ProcessingLambda handler;
+    private UserService service;
+    private APIGatewayProxyRequestEvent getUser;
+    private APIGatewayProxyRequestEvent getPage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryDynamoDbClient client = BenchmarkServices.inMemoryClient();
+        UserCache cache = BenchmarkServices.userCache(false);
+        service = BenchmarkServices.userService(client, cache);
+        BenchmarkServices.seed(client, service, BenchmarkServices.users(users));
+
+        handler = new ProcessingLambda();
+        handler.userService = service;
+        handler.userCache = cache;
+
+        getUser = new APIGatewayProxyRequestEvent()
+                .withHttpMethod("GET")
+                .withResource("/users/{userId}")
+                .withPath("/users/id-0")
+                .withPathParameters(Map.of("userId", "id-0"));
+        getPage = new APIGatewayProxyRequestEvent()
+                .withHttpMethod("GET")
+                .withResource("/users")
+                .withPath("/users")
+                .withQueryStringParameters(Map.of("limit", Integer.toString(pageSize)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent getUser() {
+        return handler.handleRequest(getUser, null);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent getPage() {
+        return handler.handleRequest(getPage, null);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatch overhead of {@link Router} with the routes of {@link ProcessingLambda} and no-op handlers, for events
+ * from API Gateway (with a resource template) and direct invocations (path only).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RouterBenchmark {
+
+    private static final APIGatewayProxyResponseEvent OK = new APIGatewayProxyResponseEvent().withStatusCode(200);
+
+    private Router router;
+
+    @Setup
+    public void setUp() {
+        Router.Handler noop = request -> OK;
+        router = new Router()
+                .add("GET", "/users", noop)
+                .add("GET", "/users/{userId}", noop)
+                .add("POST", "/users", noop)
+                .add("POST", "/users/batch", noop)
+                .add("POST", "/users/batch/delete", noop)
+                .add("PUT", "/users/{userId}", noop)
+                .add("PATCH", "/users/{userId}", noop)
+                .add("DELETE", "/users/{userId}", noop);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent byResource() throws Exception {
+        APIGatewayProxyRequestEvent request = new APIGatewayProxyRequestEvent()
+                .withHttpMethod("DELETE")
+                .withResource("/users/{userId}")
+                .withPath("/users/id-0")
+                .withPathParameters(Map.of("userId", "id-0"));
+        return router.resolve(request).handle(request);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent byPath() throws Exception {
+        // a new event per call, resolve() stores the matched template on it
+        APIGatewayProxyRequestEvent request = new APIGatewayProxyRequestEvent()
+                .withHttpMethod("DELETE")
+                .withPath("/users/id-0");
+        return router.resolve(request).handle(request);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import com.amazon.example.benchmark.InMemoryDynamoDbClient;
+import com.amazon.example.pojo.User;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wires the services by hand, with the defaults from {@code application.properties}, so that benchmarks do not
+ * need a running Quarkus application.
+ */
+public final class BenchmarkServices {
+
+    private BenchmarkServices() {
+    }
+
+    public static InMemoryDynamoDbClient inMemoryClient() {
+        return new InMemoryDynamoDbClient()
+                .withTable(AbstractService.USERS_TABLE, AbstractService.USER_ID_COL)
+                .withTable(AbstractService.USER_NAMES_TABLE, AbstractService.USER_USERNAME_COL);
+    }
+
+    public static UserCache userCache(boolean enabled) {
+        UserCache cache = new UserCache();
+        cache.enabled = enabled;
+        cache.maxEntries = 10000;
+        cache.ttl = Duration.ofSeconds(30);
+        cache.negativeTtl = Duration.ofSeconds(5);
+        cache.init();
+        return cache;
+    }
+
+    public static UserService userService(DynamoDbClient client, UserCache cache) {
+        UserService service = new UserService();
+        service.dynamoDB = client;
+        service.cache = cache;
+        service.executorThreads = 4;
+        service.batchMaxAttempts = 5;
+        service.init();
+        return service;
+    }
+
+    public static void seed(DynamoDbClient client, UserService service, List<User> users) {
+        for (User user : users) {
+            client.putItem(service.putRequest(user));
+        }
+    }
+
+    public static List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(new User("id-" + i, "user" + i, "First" + i, "Last" + i, 18 + i % 60));
+        }
+        return users;
+    }
+}
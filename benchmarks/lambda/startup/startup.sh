@@ -0,0 +1,31 @@
+#!/usr/bin/env bash
+#
+# Compares cold starts of the Lambda JVM build with and without priming. Every run is a fresh container
+# (sam local invoke), so the reported Init Duration and Duration are those of a cold start.
+#
+# Usage: startup.sh [runs]   (build ../../../lambda with ./mvnw package first)
+
+set -euo pipefail
+
+RUNS=${1:-5}
+HERE=$(cd "$(dirname "$0")" && pwd)
+LAMBDA_DIR="$HERE/../../../lambda"
+TEMPLATE="$LAMBDA_DIR/target/sam.jvm.yaml"
+
+[ -f "$TEMPLATE" ] || TEMPLATE="$LAMBDA_DIR/sam.jvm.yaml"
+
+for priming in true false; do
+  env_file=$(mktemp)
+  echo "{\"LambdaQuarkusFunction\": {\"USERS_PRIMING_ENABLED\": \"$priming\"}}" > "$env_file"
+
+  for run in $(seq 1 "$RUNS"); do
+    report=$(cd "$LAMBDA_DIR" && sam local invoke --template "$TEMPLATE" --event "$HERE/event.json" \
+        --env-vars "$env_file" 2>&1 | grep 'REPORT' || true)
+    # REPORT fields are tab separated: ... Init Duration: 1.0 ms<TAB>Duration: 2.0 ms<TAB>Billed Duration: ...
+    init=$(echo "$report" | tr '\t' '\n' | sed -n 's/^Init Duration: \([0-9.]*\) ms/\1/p')
+    duration=$(echo "$report" | tr '\t' '\n' | sed -n 's/^Duration: \([0-9.]*\) ms/\1/p')
+    echo "priming=$priming run=$run init_ms=${init:-n/a} first_request_ms=${duration:-n/a}"
+  done
+
+  rm -f "$env_file"
+done
@@ -0,0 +1,73 @@
+#!/usr/bin/env bash
+#
+# Compares requests/sec and p99 latency of GET /users/{userid} on the Fargate JVM build with platform threads,
+# virtual threads and the reactive endpoint. Needs ../../fargate/target/quarkus-app (./mvnw package), DynamoDB
+# Local on localhost:8000 with the Users tables, wrk, and a Java 21 runtime for the virtual run:
+#
+#   JAVA21_HOME=/usr/lib/jvm/java-21 load-test.sh
+#
+# The cache and the concurrency limiter are turned off, so every request reaches DynamoDB and none is shed.
+
+set -euo pipefail
+
+HERE=$(cd "$(dirname "$0")" && pwd)
+ROOT="$HERE/../.."
+APP="$ROOT/fargate/target/quarkus-app/quarkus-run.jar"
+DURATION=${DURATION:-30s}
+CONNECTIONS=${CONNECTIONS:-256}
+THREADS=${THREADS:-8}
+# the default pool has max(200, 8 * cores) workers, set e.g. WORKERS=32 to see the platform mode hit the cap
+WORKERS=${WORKERS:-}
+pid=
+
+start_app() {
+  local java=$1 mode=$2 max_connections=$3
+  env QUARKUS_DYNAMODB_ENDPOINT_OVERRIDE=${QUARKUS_DYNAMODB_ENDPOINT_OVERRIDE:-http://localhost:8000} \
+  AWS_ACCESS_KEY_ID=${AWS_ACCESS_KEY_ID:-sample-key} AWS_SECRET_ACCESS_KEY=${AWS_SECRET_ACCESS_KEY:-sample-secret} \
+  USERS_EXECUTION_MODE=$mode USERS_CACHE_ENABLED=false USERS_LIMITER_ENABLED=false \
+  QUARKUS_DYNAMODB_SYNC_CLIENT_APACHE_MAX_CONNECTIONS=$max_connections \
+  QUARKUS_DYNAMODB_ASYNC_CLIENT_MAX_CONCURRENCY=$max_connections \
+  ${WORKERS:+QUARKUS_THREAD_POOL_MAX_THREADS=$WORKERS} \
+    "$java" -jar "$APP" > /dev/null 2>&1 &
+  pid=$!
+  until curl -sf -o /dev/null http://localhost:8080/health; do
+    sleep 0.1
+  done
+}
+
+stop_app() {
+  kill "$pid" 2> /dev/null || true
+  wait "$pid" 2> /dev/null || true
+}
+
+run() {
+  local name=$1 java=$2 mode=$3 max_connections=$4 path=$5
+  start_app "$java" "$mode" "$max_connections"
+
+  local user_id
+  user_id=$(curl -sf -H 'Content-Type: application/json' -d "{\"userName\":\"load-$name-$RANDOM\",\"firstName\":\"Load\",\"lastName\":\"Test\",\"age\":30}" \
+      http://localhost:8080/users | sed -n 's/.*"userId":"\([^"]*\)".*/\1/p')
+  # warm up the JIT and the connection pools before measuring
+  wrk -t "$THREADS" -c "$CONNECTIONS" -d 10s "http://localhost:8080$path/$user_id" > /dev/null
+
+  local report
+  report=$(wrk -t "$THREADS" -c "$CONNECTIONS" -d "$DURATION" --latency "http://localhost:8080$path/$user_id")
+  stop_app
+
+  local rps p99 errors
+  rps=$(echo "$report" | awk '/^Requests\/sec/ { print $2 }')
+  p99=$(echo "$report" | awk '$1 == "99%" { print $2 }')
+  errors=$(echo "$report" | awk '/Non-2xx/ { print $NF }')
+  echo "$name requests_per_sec=$rps p99=$p99 non_2xx=${errors:-0}"
+}
+
+trap 'stop_app' EXIT
+
+run platform java platform 64 /users
+if [ -n "${JAVA21_HOME:-}" ]; then
+  # virtual threads do not queue for a worker, so the connection pool has to cover all connections
+  run virtual "$JAVA21_HOME/bin/java" virtual "$CONNECTIONS" /users
+else
+  echo "virtual skipped, set JAVA21_HOME to a Java 21 runtime"
+fi
+run reactive java platform 64 /reactive/users
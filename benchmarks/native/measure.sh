@@ -0,0 +1,65 @@
+#!/usr/bin/env bash
+#
+# Reports binary size, startup time and RSS of the native builds, so that changes to the native configuration can
+# be compared. Run it once on the old and once on the new build and keep both lines of output:
+#
+#   measure.sh fargate   needs ../../fargate/target/*-runner and DynamoDB Local on localhost:8000
+#   measure.sh lambda    needs ../../lambda/target/function.zip (./mvnw package -Pnative), docker and the SAM CLI
+
+set -euo pipefail
+
+HERE=$(cd "$(dirname "$0")" && pwd)
+ROOT="$HERE/../.."
+REQUESTS=${REQUESTS:-1000}
+
+now_ms() {
+  date +%s%3N
+}
+
+measure_fargate() {
+  local runner
+  runner=$(ls "$ROOT"/fargate/target/*-runner)
+
+  local start pid
+  start=$(now_ms)
+  QUARKUS_DYNAMODB_ENDPOINT_OVERRIDE=${QUARKUS_DYNAMODB_ENDPOINT_OVERRIDE:-http://localhost:8000} \
+  AWS_ACCESS_KEY_ID=${AWS_ACCESS_KEY_ID:-sample-key} AWS_SECRET_ACCESS_KEY=${AWS_SECRET_ACCESS_KEY:-sample-secret} \
+    "$runner" > /dev/null 2>&1 &
+  pid=$!
+  trap 'kill $pid 2> /dev/null || true' EXIT
+
+  until curl -sf -o /dev/null http://localhost:8080/health; do
+    sleep 0.005
+  done
+  local startup=$(( $(now_ms) - start ))
+  local rss_idle
+  rss_idle=$(awk '/VmRSS/ { print $2 }' "/proc/$pid/status")
+
+  for _ in $(seq 1 "$REQUESTS"); do
+    curl -sf -o /dev/null 'http://localhost:8080/users?limit=100'
+  done
+  local rss_loaded
+  rss_loaded=$(awk '/VmRSS/ { print $2 }' "/proc/$pid/status")
+
+  echo "fargate binary_bytes=$(stat -c %s "$runner") startup_ms=$startup rss_idle_kb=$rss_idle rss_after_${REQUESTS}_requests_kb=$rss_loaded"
+}
+
+measure_lambda() {
+  local zip="$ROOT/lambda/target/function.zip"
+  local report
+  report=$(cd "$ROOT/lambda" && sam local invoke --template sam.native.yaml \
+      --event "$ROOT/benchmarks/lambda/startup/event.json" 2>&1 | grep 'REPORT' || true)
+
+  # REPORT fields are tab separated: ... Init Duration: 1.0 ms<TAB>Duration: 2.0 ms<TAB>...<TAB>Max Memory Used: 3 MB
+  local init memory
+  init=$(echo "$report" | tr '\t' '\n' | sed -n 's/^Init Duration: \([0-9.]*\) ms/\1/p')
+  memory=$(echo "$report" | tr '\t' '\n' | sed -n 's/^Max Memory Used: \([0-9]*\) MB/\1/p')
+
+  echo "lambda zip_bytes=$(stat -c %s "$zip") init_ms=${init:-n/a} max_memory_mb=${memory:-n/a}"
+}
+
+case "${1:-}" in
+  fargate) measure_fargate ;;
+  lambda) measure_lambda ;;
+  *) echo "Usage: $0 fargate|lambda" >&2; exit 1 ;;
+esac
@@ -23,6 +23,22 @@ class EcsCdkStack extends cdk.Stack {
       removalPolicy: cdk.RemovalPolicy.DESTROY, // NOT recommended for production code
     });
 
+    table.addGlobalSecondaryIndex({
+      indexName: "userName-index",
+      partitionKey: { name: "userName", type: dynamodb.AttributeType.STRING, },
+      readCapacity: 1,
+      writeCapacity: 1,
+    });
+
+    // guard table that keeps userName unique across users
+    const userNames = new dynamodb.Table(this, "UserNames", {
+      partitionKey: { name: "userName", type: dynamodb.AttributeType.STRING, },
+      tableName: "UserNames",
+      readCapacity: 1,
+      writeCapacity: 1,
+      removalPolicy: cdk.RemovalPolicy.DESTROY, // NOT recommended for production code
+    });
+
     const cluster = new ecs.Cluster(this, "quarkus-demo-cluster", {
       vpc: vpc
     });
@@ -58,7 +74,17 @@ class EcsCdkStack extends cdk.Stack {
       taskDefinition: taskDef,
       publicLoadBalancer: true,
       desiredCount: 3,
-      listenerPort: 8080
+      listenerPort: 8080,
+      healthCheckGracePeriod: cdk.Duration.seconds(60)
+    });
+
+    // /health answers 503 while the task keeps shedding load, a short interval takes it out of rotation quickly
+    fargateService.targetGroup.configureHealthCheck({
+      path: "/health",
+      interval: cdk.Duration.seconds(10),
+      timeout: cdk.Duration.seconds(5),
+      healthyThresholdCount: 2,
+      unhealthyThresholdCount: 2
     });
 
     const scaling = fargateService.service.autoScaleTaskCount({ maxCapacity: 6 });
@@ -69,6 +95,7 @@ class EcsCdkStack extends cdk.Stack {
     });
 
     table.grantReadWriteData(taskRole)
+    userNames.grantReadWriteData(taskRole)
 
     new cdk.CfnOutput(this, "LoadBalancerDNS", { value: fargateService.loadBalancer.loadBalancerDnsName });
   }
@@ -67,7 +67,24 @@ class EksCdkStack extends cdk.Stack {
       removalPolicy: cdk.RemovalPolicy.DESTROY, // NOT recommended for production code
     });
 
+    table.addGlobalSecondaryIndex({
+      indexName: "userName-index",
+      partitionKey: { name: "userName", type: dynamodb.AttributeType.STRING, },
+      readCapacity: 1,
+      writeCapacity: 1,
+    });
+
+    // guard table that keeps userName unique across users
+    const userNames = new dynamodb.Table(this, "UserNames", {
+      partitionKey: { name: "userName", type: dynamodb.AttributeType.STRING, },
+      tableName: "UserNames",
+      readCapacity: 1,
+      writeCapacity: 1,
+      removalPolicy: cdk.RemovalPolicy.DESTROY, // NOT recommended for production code
+    });
+
     table.grantReadWriteData(sa.role)
+    userNames.grantReadWriteData(sa.role)
   }
 
 
@@ -80,7 +97,10 @@ class EksCdkStack extends cdk.Stack {
         annotations: {
           "kubernetes.io/ingress.class": "alb",
           "alb.ingress.kubernetes.io/scheme": "internet-facing",
-          "alb.ingress.kubernetes.io/healthcheck-path": "/health"
+          "alb.ingress.kubernetes.io/healthcheck-path": "/health",
+          "alb.ingress.kubernetes.io/healthcheck-interval-seconds": "10",
+          "alb.ingress.kubernetes.io/healthy-threshold-count": "2",
+          "alb.ingress.kubernetes.io/unhealthy-threshold-count": "2"
         },
         labels: appLabel
       },
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.pojo;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+/**
+ * Outcome of a single item of a batch request.
+ */
+@RegisterForReflection
+public class BatchItemResult {
+
+    public enum Status {
+        CREATED,
+        DELETED,
+        /** The userName is already taken by another user. */
+        CONFLICT,
+        FAILED
+    }
+
+    private String userId;
+    private Status status;
+    private String error;
+
+    public BatchItemResult() {
+    }
+
+    public BatchItemResult(String userId, Status status, String error) {
+        this.userId = userId;
+        this.status = status;
+        this.error = error;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
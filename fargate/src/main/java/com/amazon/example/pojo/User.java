@@ -15,7 +15,7 @@
  */
 package com.amazon.example.pojo;
 
-import com.amazon.example.service.AbstractService;
+import com.amazon.example.service.UserCodec;
 import io.quarkus.runtime.annotations.RegisterForReflection;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
@@ -29,12 +29,14 @@ public class User {
     private String userName;
     private String firstName;
     private String lastName;
-    private int age;
+    private Integer age;
+    // Incremented by every update; null for users written before versioning was introduced
+    private Long version;
 
     public User() {
     }
 
-    public User(String userId, String userName, String firstName, String lastName, int age) {
+    public User(String userId, String userName, String firstName, String lastName, Integer age) {
         this.userId = userId;
         this.userName = userName;
         this.firstName = firstName;
@@ -43,16 +45,7 @@ public class User {
     }
 
     public static User from(Map<String, AttributeValue> item) {
-        User user = new User();
-        if (item != null && !item.isEmpty()) {
-
-            user.setUserId(item.get(AbstractService.USER_ID_COL).s());
-            user.setUserName(item.get(AbstractService.USER_USERNAME_COL).s());
-            user.setFirstName(item.get(AbstractService.USER_FIRSTNAME_COL).s());
-            user.setLastName(item.get(AbstractService.USER_LASTNAME_COL).s());
-            user.setAge(Integer.parseInt(item.get(AbstractService.USER_AGE_COL).n()));
-        }
-        return user;
+        return UserCodec.fromItem(item);
     }
 
     public String getUserId() {
@@ -87,11 +80,19 @@ public class User {
         this.lastName = lastName;
     }
 
-    public int getAge() {
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Integer getAge() {
         return age;
     }
 
-    public void setAge(int age) {
+    public void setAge(Integer age) {
         this.age = age;
     }
 
@@ -116,6 +117,7 @@ public class User {
                 ", firstName='" + firstName + '\'' +
                 ", lastName='" + lastName + '\'' +
                 ", age=" + age +
+                ", version=" + version +
                 '}';
     }
 }
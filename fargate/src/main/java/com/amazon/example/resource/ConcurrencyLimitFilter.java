@@ -0,0 +1,68 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.resource;
+
+import com.amazon.example.service.ConcurrencyLimits;
+import io.quarkus.vertx.http.runtime.CurrentVertxRequest;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Rejects requests with 503 and {@code Retry-After} while their route is at its {@link ConcurrencyLimits} limit,
+ * instead of queueing them behind DynamoDB calls that are being throttled. Runs after {@link RequestLoggingFilter},
+ * so rejected requests are logged too. The permit is released when the HTTP response has ended, which also covers
+ * unmapped exceptions and client aborts that skip the JAX-RS response filters.
+ */
+@Provider
+@ConcurrencyLimited
+@Priority(Priorities.USER + 100)
+public class ConcurrencyLimitFilter implements ContainerRequestFilter {
+
+    @Context
+    ResourceInfo resourceInfo;
+
+    @Inject
+    ConcurrencyLimits limits;
+
+    @Inject
+    CurrentVertxRequest vertxRequest;
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        String route = request.getMethod() + " " + RequestLoggingFilter.route(resourceInfo.getResourceMethod());
+        ConcurrencyLimits.Permit permit = limits.acquire(route);
+        if (permit == null) {
+            request.abortWith(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, Math.max(1, limits.retryAfter().toSeconds()))
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity("Too many requests in flight for " + route)
+                    .build());
+            return;
+        }
+        // runs once, whether the response was written, failed or the connection was closed
+        vertxRequest.getCurrent().addEndHandler(ended -> permit.release());
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.resource;
+
+import com.amazon.example.service.EntityTags;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Tags successful user reads with an {@code ETag} and answers a matching {@code If-None-Match} with
+ * {@code 304 Not Modified}, so polling clients do not download unchanged users again. The data is still read from
+ * DynamoDB (or the cache), only the body is saved.
+ */
+@Provider
+public class ConditionalGetFilter implements ContainerResponseFilter {
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        if (!HttpMethod.GET.equals(requestContext.getMethod()) || responseContext.getStatus() != Response.Status.OK.getStatusCode()) {
+            return;
+        }
+
+        String tag = EntityTags.of(responseContext.getEntity());
+        if (tag == null) {
+            return;
+        }
+
+        responseContext.getHeaders().putSingle(HttpHeaders.ETAG, new EntityTag(tag, true));
+        // the body is compressed depending on Accept-Encoding, see quarkus.http.enable-compression
+        responseContext.getHeaders().putSingle(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (EntityTags.matches(requestContext.getHeaderString(HttpHeaders.IF_NONE_MATCH), tag)) {
+            responseContext.setStatus(Response.Status.NOT_MODIFIED.getStatusCode());
+            responseContext.setEntity(null);
+        }
+    }
+}
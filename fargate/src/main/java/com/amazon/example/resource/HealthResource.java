@@ -15,17 +15,32 @@
  */
 package com.amazon.example.resource;
 
+import com.amazon.example.service.ConcurrencyLimits;
+
+import javax.inject.Inject;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 
+/**
+ * Load balancer health check. Reports 503 while the task has been shedding load for most of the last overload window,
+ * so the ALB sends traffic to other tasks until the concurrency limits recover. Short bursts of rejections do not
+ * count, otherwise a spike would fail the checks of every task and ECS would replace them one after the other.
+ */
 @Path("/health")
 public class HealthResource {
 
+    @Inject
+    ConcurrencyLimits limits;
+
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public String check() {
-        return "OK";
+    public Response check() {
+        if (limits.overloaded()) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).entity("OVERLOADED").build();
+        }
+        return Response.ok("OK").build();
     }
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.resource;
+
+import com.amazon.example.pojo.User;
+import com.amazon.example.service.ReactiveUserService;
+import com.amazon.example.service.UserQuery;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import org.jboss.resteasy.annotations.SseElementType;
+
+import javax.inject.Inject;
+import javax.ws.rs.*;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.UUID;
+
+/**
+ * The read, create and delete endpoints of {@link UserResource}, served by {@link ReactiveUserService}: single users,
+ * pages with the {@code userName}, {@code fields}, age and {@code lastNamePrefix} filters, {@code POST} and
+ * {@code DELETE}, plus all users as server-sent events. Lookups by {@code ids}, the batch endpoints and updates with
+ * {@code PUT}/{@code PATCH} are only offered by {@link UserResource}. The request thread is released as soon as the
+ * DynamoDB call has been issued, so concurrency is bounded by DynamoDB rather than the worker pool.
+ */
+@Path("/reactive/users")
+@ConcurrencyLimited
+public class ReactiveUserResource {
+
+    @Inject
+    ReactiveUserService service;
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("{userid}")
+    public Uni<User> getUser(@PathParam("userid") String userId, @QueryParam("fields") String fields) {
+        return service.get(userId, UserResource.query(fields, null, null, null));
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Uni<Response> getUsers(@QueryParam("limit") Integer limit, @QueryParam("cursor") String cursor,
+                                  @QueryParam("userName") String userName, @QueryParam("fields") String fields,
+                                  @QueryParam("minAge") Integer minAge, @QueryParam("maxAge") Integer maxAge,
+                                  @QueryParam("lastNamePrefix") String lastNamePrefix) {
+        UserQuery query = UserResource.query(fields, minAge, maxAge, lastNamePrefix);
+
+        if (userName != null) {
+            if (userName.isBlank()) {
+                throw new BadRequestException("userName must not be blank");
+            }
+            return service.findByUserName(userName, query).collect().asList()
+                    .onItem().transform(users -> Response.ok(users).build());
+        }
+
+        if (limit != null && limit < 1) {
+            throw new BadRequestException("limit must be positive");
+        }
+
+        return service.findPage(limit, cursor, query)
+                .onItem().transform(page -> Response.ok(page).build())
+                .onFailure(IllegalArgumentException.class).transform(exc -> new BadRequestException(exc.getMessage()));
+    }
+
+    @GET
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @SseElementType(MediaType.APPLICATION_JSON)
+    @Path("stream")
+    public Multi<User> streamUsers() {
+        return service.findAll();
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Uni<User> createUser(User user) {
+        user.setUserId(UUID.randomUUID().toString());
+
+        return service.add(user);
+    }
+
+    @DELETE
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("{userid}")
+    public Uni<Response> deleteUser(@PathParam("userid") String userId) {
+        return service.delete(userId)
+                .onItem().transform(user -> user.getUserId() == null
+                        ? Response.status(Response.Status.NOT_FOUND).build()
+                        : Response.ok(user).build());
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.resource;
+
+import com.amazon.example.service.PayloadSampler;
+import org.jboss.logging.Logger;
+import org.jboss.logging.MDC;
+
+import javax.inject.Inject;
+import javax.ws.rs.Path;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes one log line per request with the route and status, and the request ID and latency as MDC fields (which
+ * become JSON fields with {@code quarkus.log.console.json}). Response payloads are only logged for the sampled
+ * fraction of requests configured in {@code users.logging.payload-sampling}.
+ */
+@Provider
+public class RequestLoggingFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+
+    private static final Logger LOGGER = Logger.getLogger(RequestLoggingFilter.class);
+
+    private static final String START_PROPERTY = RequestLoggingFilter.class.getName() + ".start";
+    private static final String REQUEST_ID_PROPERTY = RequestLoggingFilter.class.getName() + ".requestId";
+
+    private static final Map<Method, String> ROUTES = new ConcurrentHashMap<>();
+
+    @Context
+    ResourceInfo resourceInfo;
+
+    @Inject
+    PayloadSampler payloadSampler;
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        String requestId = request.getHeaderString(REQUEST_ID_HEADER);
+        if (requestId == null || requestId.isEmpty()) {
+            requestId = UUID.randomUUID().toString();
+        }
+
+        request.setProperty(START_PROPERTY, System.nanoTime());
+        request.setProperty(REQUEST_ID_PROPERTY, requestId);
+        MDC.put("requestId", requestId);
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        Object start = request.getProperty(START_PROPERTY);
+        Object requestId = request.getProperty(REQUEST_ID_PROPERTY);
+        if (start == null) {
+            // rejected before matching, e.g. unknown path
+            return;
+        }
+
+        String route = request.getMethod() + " " + route(resourceInfo.getResourceMethod());
+        response.getHeaders().putSingle(REQUEST_ID_HEADER, requestId);
+
+        // reactive endpoints complete on another thread than the one the request filter ran on
+        MDC.put("requestId", requestId);
+        MDC.put("latencyMs", (System.nanoTime() - (long) start) / 1_000_000.0);
+        if (payloadSampler.sample(route)) {
+            LOGGER.infof("%s payload: %s", route, response.getEntity());
+        }
+        LOGGER.infof("%s %d", route, response.getStatus());
+        MDC.remove("latencyMs");
+        MDC.remove("requestId");
+    }
+
+    static String route(Method method) {
+        if (method == null) {
+            return "unmatched";
+        }
+        return ROUTES.computeIfAbsent(method, resourceMethod -> {
+            Path type = resourceMethod.getDeclaringClass().getAnnotation(Path.class);
+            Path path = resourceMethod.getAnnotation(Path.class);
+            String route = type != null ? type.value() : "";
+            if (path != null) {
+                route += (path.value().startsWith("/") ? "" : "/") + path.value();
+            }
+            return route;
+        });
+    }
+}
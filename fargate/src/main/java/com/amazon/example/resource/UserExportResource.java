@@ -0,0 +1,71 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.resource;
+
+import com.amazon.example.pojo.User;
+import com.amazon.example.service.UserService;
+
+import javax.inject.Inject;
+import javax.json.bind.Jsonb;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streams the complete user table as newline-delimited JSON, one scan page at a time.
+ */
+@Path("/users/export")
+@ConcurrencyLimited
+public class UserExportResource {
+
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    @Inject
+    UserService service;
+
+    @Inject
+    Jsonb jsonb;
+
+    @GET
+    @Produces(APPLICATION_NDJSON)
+    public StreamingOutput export() {
+        return output -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            try {
+                service.forEachPage(page -> {
+                    try {
+                        for (User user : page) {
+                            writer.write(jsonb.toJson(user));
+                            writer.write('\n');
+                        }
+                        writer.flush();
+                    } catch (IOException exc) {
+                        throw new UncheckedIOException(exc);
+                    }
+                });
+            } catch (UncheckedIOException exc) {
+                throw exc.getCause();
+            }
+        };
+    }
+}
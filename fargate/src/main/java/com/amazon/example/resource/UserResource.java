@@ -15,57 +15,225 @@
  */
 package com.amazon.example.resource;
 
+import com.amazon.example.pojo.BatchItemResult;
 import com.amazon.example.pojo.User;
+import com.amazon.example.service.BlockingExecutor;
+import com.amazon.example.service.UserQuery;
 import com.amazon.example.service.UserService;
-import io.vertx.core.logging.Logger;
-import io.vertx.core.logging.LoggerFactory;
+import com.amazon.example.service.WriteBehindBuffer;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
 
 import javax.inject.Inject;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletionStage;
 
 @Path("/users")
+@ConcurrencyLimited
 public class UserResource {
 
-    private final Logger log = LoggerFactory.getLogger(UserResource.class);
+    private static final Logger LOGGER = Logger.getLogger(UserResource.class);
 
     @Inject
     UserService service;
 
+    /**
+     * Runs the service calls on the worker thread or on a virtual thread, see {@code users.execution.mode}.
+     */
+    @Inject
+    BlockingExecutor executor;
+
+    @Inject
+    WriteBehindBuffer writeBehind;
+
+    /**
+     * Compatibility mode for clients that still expect the complete user list after a delete.
+     */
+    @ConfigProperty(name = "users.write.legacy-list-response", defaultValue = "false")
+    boolean legacyListResponse;
+
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @Path("{userid}")
-    public User getUser(@PathParam("userid") String userId) {
-        return service.get(userId);
+    public CompletionStage<User> getUser(@PathParam("userid") String userId, @QueryParam("fields") String fields) {
+        UserQuery query = query(fields, null, null, null);
+        return executor.submit(() -> service.get(userId, query));
     }
 
+    /**
+     * {@code fields} selects the attributes to return; {@code minAge}, {@code maxAge} and {@code lastNamePrefix}
+     * filter the page and the userName lookup, they do not apply to {@code ids}.
+     */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public List<User> getUsers() {
-        return service.findAll();
+    public CompletionStage<Response> getUsers(@QueryParam("limit") Integer limit, @QueryParam("cursor") String cursor,
+                             @QueryParam("ids") String ids, @QueryParam("userName") String userName,
+                             @QueryParam("fields") String fields, @QueryParam("minAge") Integer minAge,
+                             @QueryParam("maxAge") Integer maxAge, @QueryParam("lastNamePrefix") String lastNamePrefix) {
+        UserQuery query = query(fields, minAge, maxAge, lastNamePrefix);
+
+        if (userName != null) {
+            if (userName.isBlank()) {
+                throw new BadRequestException("userName must not be blank");
+            }
+            return executor.submit(() -> Response.ok(service.findByUserName(userName, query)).build());
+        }
+
+        if (ids != null) {
+            List<String> userIds = parseIds(ids);
+            validateBatch(userIds);
+            return executor.submit(() -> Response.ok(service.getAll(userIds, query)).build());
+        }
+
+        if (limit != null && limit < 1) {
+            throw new BadRequestException("limit must be positive");
+        }
+
+        return executor.submit(() -> {
+            try {
+                return Response.ok(service.findPage(limit, cursor, query)).build();
+            } catch (IllegalArgumentException exc) {
+                throw new BadRequestException(exc.getMessage());
+            }
+        });
     }
 
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public User createUser(User user) {
+    public CompletionStage<User> createUser(User user) {
 
         user.setUserId(this.createUserId());
 
-        service.add(user);
+        if (writeBehind.enabled()) {
+            return writeBehind.submit(user);
+        }
+        return executor.submit(() -> {
+            User created = service.add(user);
+
+            LOGGER.debugf("Created user %s", created.getUserId());
+
+            return created;
+        });
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("batch")
+    public CompletionStage<List<BatchItemResult>> createUsers(List<User> users) {
+        validateBatch(users);
 
-        log.info("Created user " + user);
+        for (User user : users) {
+            if (user == null) {
+                throw new BadRequestException("users must not be null");
+            }
+            user.setUserId(this.createUserId());
+        }
 
-        return getUser(user.getUserId());
+        return executor.submit(() -> service.addAll(users));
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("batch/delete")
+    public CompletionStage<List<BatchItemResult>> deleteUsers(List<String> userIds) {
+        validateBatch(userIds);
+
+        if (userIds.contains(null)) {
+            throw new BadRequestException("userIds must not be null");
+        }
+
+        return executor.submit(() -> service.deleteAll(userIds));
+    }
+
+    /**
+     * Replaces all mutable attributes of the user; attributes missing from the body are removed. The body must carry
+     * the {@code version} it is based on, {@code 409} means the user has changed since.
+     */
+    @PUT
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("{userid}")
+    public CompletionStage<Response> replaceUser(@PathParam("userid") String userId, User user) {
+        return update(userId, user, true);
+    }
+
+    /**
+     * Updates only the attributes present in the body, see {@link #replaceUser(String, User)}.
+     */
+    @PATCH
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("{userid}")
+    public CompletionStage<Response> updateUser(@PathParam("userid") String userId, User user) {
+        return update(userId, user, false);
     }
 
     @DELETE
     @Produces(MediaType.APPLICATION_JSON)
     @Path("{userid}")
-    public List<User> deleteUser(@PathParam("userid") String userId) {
-        return service.delete(userId);
+    public CompletionStage<Response> deleteUser(@PathParam("userid") String userId) {
+        return executor.submit(() -> {
+            User deleted = service.delete(userId);
+
+            if (legacyListResponse) {
+                return Response.ok(service.findAll()).build();
+            }
+            if (deleted.getUserId() == null) {
+                return Response.status(Response.Status.NOT_FOUND).build();
+            }
+            return Response.ok(deleted).build();
+        });
+    }
+
+    private CompletionStage<Response> update(String userId, User changes, boolean replace) {
+        if (changes == null || changes.getVersion() == null) {
+            throw new BadRequestException("version is required");
+        }
+
+        return executor.submit(() -> {
+            User updated;
+            try {
+                updated = service.update(userId, changes, changes.getVersion(), replace);
+            } catch (IllegalArgumentException exc) {
+                throw new BadRequestException(exc.getMessage());
+            }
+            if (updated.getUserId() == null) {
+                return Response.status(Response.Status.NOT_FOUND).build();
+            }
+            return Response.ok(updated).build();
+        });
+    }
+
+    static UserQuery query(String fields, Integer minAge, Integer maxAge, String lastNamePrefix) {
+        try {
+            return UserQuery.of(fields, minAge, maxAge, lastNamePrefix);
+        } catch (IllegalArgumentException exc) {
+            throw new BadRequestException(exc.getMessage());
+        }
+    }
+
+    private static List<String> parseIds(String ids) {
+        List<String> userIds = new ArrayList<>();
+        for (String id : ids.split(",")) {
+            if (!id.isBlank()) {
+                userIds.add(id.trim());
+            }
+        }
+        return userIds;
+    }
+
+    private static void validateBatch(List<?> items) {
+        if (items == null || items.isEmpty() || items.size() > UserService.MAX_BATCH_SIZE) {
+            throw new BadRequestException("A batch must contain between 1 and " + UserService.MAX_BATCH_SIZE + " items");
+        }
     }
 
     private String createUserId() {
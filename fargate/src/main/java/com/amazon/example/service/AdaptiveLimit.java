@@ -0,0 +1,87 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AIMD limit on the number of requests in flight. The limit grows by one once a limit's worth of requests completed
+ * while it was at least half used and DynamoDB looked healthy, and shrinks by {@link #BACKOFF} when a request saw
+ * throttling or inflated DynamoDB latency. Decreases are spaced out, so the requests caught in one slow period
+ * shrink the limit once rather than once each.
+ */
+public class AdaptiveLimit {
+
+    static final double BACKOFF = 0.8;
+
+    private static final long DECREASE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final LongAdder rejected = new LongAdder();
+
+    private double limit;
+    private int inFlight;
+    private long lastDecrease = System.nanoTime() - DECREASE_INTERVAL_NANOS;
+
+    public AdaptiveLimit(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Expected 1 <= min-limit <= initial-limit <= max-limit");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            rejected.increment();
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * @param overloaded whether DynamoDB throttled or slowed down while the request was in flight
+     */
+    public synchronized void release(boolean overloaded) {
+        boolean used = inFlight * 2 >= (int) limit;
+        inFlight--;
+        if (overloaded) {
+            long now = System.nanoTime();
+            if (now - lastDecrease >= DECREASE_INTERVAL_NANOS) {
+                limit = Math.max(minLimit, limit * BACKOFF);
+                lastDecrease = now;
+            }
+        } else if (used) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+}
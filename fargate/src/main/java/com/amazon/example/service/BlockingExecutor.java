@@ -0,0 +1,104 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.jboss.logging.MDC;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Runs the blocking calls of {@code UserResource}. With {@code users.execution.mode=platform} they run on the worker
+ * thread that received the request, with {@code virtual} each call gets its own virtual thread and the worker is
+ * free again while the call waits for DynamoDB. Virtual threads need a Java 21 runtime; on older runtimes the
+ * virtual mode falls back to platform threads.
+ */
+@ApplicationScoped
+public class BlockingExecutor {
+
+    private static final Logger LOGGER = Logger.getLogger(BlockingExecutor.class);
+
+    @ConfigProperty(name = "users.execution.mode", defaultValue = "platform")
+    String mode;
+
+    private ExecutorService virtualThreads;
+
+    @PostConstruct
+    void init() {
+        if ("virtual".equals(mode)) {
+            virtualThreads = newVirtualThreadPerTaskExecutor();
+            if (virtualThreads == null) {
+                LOGGER.warnf("Virtual threads need Java 21, running on %s with platform threads",
+                        System.getProperty("java.version"));
+            }
+        } else if (!"platform".equals(mode)) {
+            throw new IllegalArgumentException("users.execution.mode must be platform or virtual, was " + mode);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (virtualThreads != null) {
+            virtualThreads.shutdown();
+        }
+    }
+
+    public boolean virtual() {
+        return virtualThreads != null;
+    }
+
+    /**
+     * @return the result of the call; exceptions are not wrapped, so exception mappers see them as thrown
+     */
+    public <T> CompletionStage<T> submit(Supplier<T> call) {
+        if (virtualThreads == null) {
+            return CompletableFuture.completedFuture(call.get());
+        }
+
+        // keeps the requestId of RequestLoggingFilter in the log lines written by the call
+        Map<String, Object> mdc = MDC.getMap();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        virtualThreads.execute(() -> {
+            mdc.forEach(MDC::put);
+            try {
+                result.complete(call.get());
+            } catch (Throwable exc) {
+                result.completeExceptionally(exc);
+            } finally {
+                MDC.clear();
+            }
+        });
+        return result;
+    }
+
+    // the application is compiled for Java 11, so the Java 21 factory is looked up at runtime
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException exc) {
+            return null;
+        }
+    }
+}
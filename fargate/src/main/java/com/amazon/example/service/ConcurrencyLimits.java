@@ -0,0 +1,142 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * One {@link AdaptiveLimit} per route, adjusted from the {@link DynamoDbLoad} signals observed while each request
+ * was in flight. The task reports itself overloaded while it keeps rejecting a share of its requests over
+ * {@code users.limiter.overload-window}, see {@link #overloaded()}.
+ */
+@ApplicationScoped
+public class ConcurrencyLimits {
+
+    @ConfigProperty(name = "users.limiter.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "users.limiter.initial-limit", defaultValue = "20")
+    int initialLimit;
+
+    @ConfigProperty(name = "users.limiter.min-limit", defaultValue = "2")
+    int minLimit;
+
+    @ConfigProperty(name = "users.limiter.max-limit", defaultValue = "200")
+    int maxLimit;
+
+    @ConfigProperty(name = "users.limiter.latency-tolerance", defaultValue = "2.0")
+    double latencyTolerance;
+
+    @ConfigProperty(name = "users.limiter.retry-after", defaultValue = "PT1S")
+    Duration retryAfter;
+
+    @ConfigProperty(name = "users.limiter.overload-window", defaultValue = "PT30S")
+    Duration overloadWindow;
+
+    @ConfigProperty(name = "users.limiter.overload-ratio", defaultValue = "0.25")
+    double overloadRatio;
+
+    DynamoDbLoad load = DynamoDbLoad.get();
+
+    private final ConcurrentMap<String, AdaptiveLimit> limits = new ConcurrentHashMap<>();
+    private RejectionRate rejections;
+
+    @PostConstruct
+    void init() {
+        rejections = new RejectionRate(overloadWindow, overloadRatio);
+    }
+
+    /**
+     * @return the permit to release once the response is complete, or null if the route is at its limit
+     */
+    public Permit acquire(String route) {
+        if (!enabled) {
+            return new Permit(null, 0);
+        }
+        AdaptiveLimit limit = limits.computeIfAbsent(route, this::register);
+        boolean acquired = limit.tryAcquire();
+        rejections.record(!acquired, System.nanoTime());
+        if (!acquired) {
+            return null;
+        }
+        return new Permit(limit, load.throttles());
+    }
+
+    /**
+     * @return requests of the route currently holding a permit
+     */
+    public int inFlight(String route) {
+        AdaptiveLimit limit = limits.get(route);
+        return limit != null ? limit.inFlight() : 0;
+    }
+
+    /**
+     * @return how long rejected clients are asked to wait before retrying
+     */
+    public Duration retryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * @return whether the task has been shedding load for most of the overload window, rather than after a burst
+     */
+    public boolean overloaded() {
+        return enabled && rejections.sustained(System.nanoTime());
+    }
+
+    private AdaptiveLimit register(String route) {
+        AdaptiveLimit limit = new AdaptiveLimit(initialLimit, minLimit, maxLimit);
+        Gauge.builder("users.limiter.limit", limit, AdaptiveLimit::limit)
+                .description("Requests allowed in flight")
+                .tag("route", route)
+                .register(Metrics.globalRegistry);
+        Gauge.builder("users.limiter.inflight", limit, AdaptiveLimit::inFlight)
+                .description("Requests in flight")
+                .tag("route", route)
+                .register(Metrics.globalRegistry);
+        FunctionCounter.builder("users.limiter.rejected", limit, AdaptiveLimit::rejected)
+                .description("Requests rejected with 503 because the route was at its limit")
+                .tag("route", route)
+                .register(Metrics.globalRegistry);
+        return limit;
+    }
+
+    public final class Permit {
+
+        private final AdaptiveLimit limit;
+        private final long throttles;
+
+        private Permit(AdaptiveLimit limit, long throttles) {
+            this.limit = limit;
+            this.throttles = throttles;
+        }
+
+        public void release() {
+            if (limit != null) {
+                limit.release(load.throttles() > throttles || load.latencyRatio() > latencyTolerance);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * DynamoDB pressure as seen by this task, fed by {@link DynamoDbMetricsInterceptor}: the number of throttled
+ * attempts so far and the smoothed call latency relative to the lowest latency observed recently. The interceptor
+ * is created by the SDK rather than CDI, hence the single shared instance.
+ */
+public final class DynamoDbLoad {
+
+    private static final DynamoDbLoad INSTANCE = new DynamoDbLoad();
+
+    private static final double SMOOTHING = 0.1;
+    // lets the baseline follow a lasting latency change (e.g. larger items) instead of reporting it forever
+    private static final double BASELINE_DRIFT = 0.01;
+
+    private final LongAdder throttles = new LongAdder();
+    private double smoothedNanos;
+    private double baselineNanos;
+
+    DynamoDbLoad() {
+    }
+
+    public static DynamoDbLoad get() {
+        return INSTANCE;
+    }
+
+    void throttled() {
+        throttles.increment();
+    }
+
+    synchronized void latency(long nanos) {
+        smoothedNanos = smoothedNanos == 0 ? nanos : smoothedNanos + SMOOTHING * (nanos - smoothedNanos);
+        if (baselineNanos == 0 || nanos < baselineNanos) {
+            baselineNanos = nanos;
+        } else {
+            baselineNanos += BASELINE_DRIFT * (smoothedNanos - baselineNanos);
+        }
+    }
+
+    public long throttles() {
+        return throttles.sum();
+    }
+
+    /**
+     * @return smoothed latency divided by the baseline, 1 until the first call completed
+     */
+    public synchronized double latencyRatio() {
+        return baselineNanos > 0 ? smoothedNanos / baselineNanos : 1;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.SdkResponse;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records latency, retries, throttles, consumed capacity and items per page of every DynamoDB call made by the sync
+ * and async clients. Registered through {@code quarkus.dynamodb.interceptors}, so it is created by the SDK rather
+ * than CDI and reports to the global Micrometer registry. Latencies and throttles also feed {@link DynamoDbLoad}.
+ */
+public class DynamoDbMetricsInterceptor implements ExecutionInterceptor {
+
+    private static final ExecutionAttribute<Long> START = new ExecutionAttribute<>("UsersMetricsStart");
+    private static final ExecutionAttribute<int[]> ATTEMPTS = new ExecutionAttribute<>("UsersMetricsAttempts");
+    private static final ExecutionAttribute<Integer> LAST_STATUS = new ExecutionAttribute<>("UsersMetricsLastStatus");
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+        executionAttributes.putAttribute(START, System.nanoTime());
+        executionAttributes.putAttribute(ATTEMPTS, new int[1]);
+    }
+
+    @Override
+    public void beforeTransmission(Context.BeforeTransmission context, ExecutionAttributes executionAttributes) {
+        int attempt = ++executionAttributes.getAttribute(ATTEMPTS)[0];
+        // the SDK retries a 400 only for throttling (and clock skew), other client errors fail the call
+        Integer lastStatus = executionAttributes.getAttribute(LAST_STATUS);
+        if (attempt > 1 && lastStatus != null && lastStatus == 400) {
+            throttled(executionAttributes);
+        }
+    }
+
+    @Override
+    public void afterTransmission(Context.AfterTransmission context, ExecutionAttributes executionAttributes) {
+        executionAttributes.putAttribute(LAST_STATUS, context.httpResponse().statusCode());
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        String operation = operation(executionAttributes);
+        record(executionAttributes, "success");
+
+        SdkResponse response = context.response();
+        response.getValueForField("ConsumedCapacity", Object.class).ifPresent(capacity -> {
+            double units = capacityUnits(capacity);
+            if (units > 0) {
+                DistributionSummary.builder("dynamodb.consumed.capacity")
+                        .baseUnit("capacityUnits")
+                        .tag("operation", operation)
+                        .register(Metrics.globalRegistry)
+                        .record(units);
+            }
+        });
+
+        Integer count = null;
+        if (response instanceof ScanResponse) {
+            count = ((ScanResponse) response).count();
+        } else if (response instanceof QueryResponse) {
+            count = ((QueryResponse) response).count();
+        }
+        if (count != null) {
+            DistributionSummary.builder("dynamodb.page.items")
+                    .baseUnit("items")
+                    .tag("operation", operation)
+                    .register(Metrics.globalRegistry)
+                    .record(count);
+        }
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        if (executionAttributes.getAttribute(START) == null) {
+            return;
+        }
+        record(executionAttributes, "error");
+
+        Throwable exception = context.exception();
+        if (exception instanceof AwsServiceException && ((AwsServiceException) exception).isThrottlingException()) {
+            throttled(executionAttributes);
+        }
+    }
+
+    private static void record(ExecutionAttributes executionAttributes, String outcome) {
+        String operation = operation(executionAttributes);
+        long latency = System.nanoTime() - executionAttributes.getAttribute(START);
+        Timer.builder("dynamodb.requests")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(Metrics.globalRegistry)
+                .record(latency, TimeUnit.NANOSECONDS);
+        DynamoDbLoad.get().latency(latency);
+
+        int retries = executionAttributes.getAttribute(ATTEMPTS)[0] - 1;
+        if (retries > 0) {
+            Metrics.counter("dynamodb.retries", "operation", operation).increment(retries);
+        }
+    }
+
+    private static void throttled(ExecutionAttributes executionAttributes) {
+        Metrics.counter("dynamodb.throttles", "operation", operation(executionAttributes)).increment();
+        DynamoDbLoad.get().throttled();
+    }
+
+    private static String operation(ExecutionAttributes executionAttributes) {
+        return executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+    }
+
+    private static double capacityUnits(Object capacity) {
+        // a single value for item operations, one per table for batch operations
+        if (capacity instanceof ConsumedCapacity) {
+            Double units = ((ConsumedCapacity) capacity).capacityUnits();
+            return units != null ? units : 0;
+        }
+        double units = 0;
+        if (capacity instanceof List) {
+            for (Object element : (List<?>) capacity) {
+                units += capacityUnits(element);
+            }
+        }
+        return units;
+    }
+}
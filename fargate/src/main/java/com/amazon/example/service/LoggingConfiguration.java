@@ -0,0 +1,36 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.enterprise.inject.Produces;
+import javax.inject.Singleton;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Builds the {@link PayloadSampler} for the request log from {@code users.logging.payload-sampling}.
+ */
+public class LoggingConfiguration {
+
+    @Produces
+    @Singleton
+    public PayloadSampler payloadSampler(
+            @ConfigProperty(name = "users.logging.payload-sampling") Optional<List<String>> payloadSampling) {
+        return new PayloadSampler(payloadSampling.orElse(List.of()));
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Encodes a DynamoDB {@code LastEvaluatedKey} as an opaque, URL-safe cursor and back.
+ */
+public final class PageCursor {
+
+    private static final Set<String> KEY_ATTRIBUTES = Set.of(AbstractService.USER_ID_COL);
+
+    private PageCursor() {
+    }
+
+    public static String encode(Map<String, AttributeValue> lastEvaluatedKey) {
+        if (lastEvaluatedKey == null || lastEvaluatedKey.isEmpty()) {
+            return null;
+        }
+
+        StringBuilder raw = new StringBuilder();
+        for (Map.Entry<String, AttributeValue> entry : new TreeMap<>(lastEvaluatedKey).entrySet()) {
+            AttributeValue value = entry.getValue();
+            if (raw.length() > 0) {
+                raw.append('&');
+            }
+            raw.append(URLEncoder.encode(entry.getKey(), StandardCharsets.UTF_8)).append('=');
+            if (value.s() != null) {
+                raw.append("S:").append(URLEncoder.encode(value.s(), StandardCharsets.UTF_8));
+            } else if (value.n() != null) {
+                raw.append("N:").append(URLEncoder.encode(value.n(), StandardCharsets.UTF_8));
+            } else {
+                throw new IllegalStateException("Unsupported key attribute type for " + entry.getKey());
+            }
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encode(Map)}
+     */
+    public static Map<String, AttributeValue> decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException exc) {
+            throw new IllegalArgumentException("Invalid cursor", exc);
+        }
+
+        Map<String, AttributeValue> key = new HashMap<>();
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0 || pair.length() < eq + 3 || pair.charAt(eq + 2) != ':') {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+
+            String name = URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8);
+            if (!KEY_ATTRIBUTES.contains(name)) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+
+            String value = URLDecoder.decode(pair.substring(eq + 3), StandardCharsets.UTF_8);
+            switch (pair.charAt(eq + 1)) {
+                case 'S':
+                    key.put(name, AttributeValue.builder().s(value).build());
+                    break;
+                case 'N':
+                    key.put(name, AttributeValue.builder().n(value).build());
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+        return key;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import com.amazon.example.pojo.User;
+import com.amazon.example.pojo.UserPage;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * Non-blocking counterpart of {@link UserService} on top of the Netty based {@link DynamoDbAsyncClient}.
+ * No thread is held while a DynamoDB call is in flight.
+ */
+@ApplicationScoped
+public class ReactiveUserService extends AbstractService {
+
+    @Inject
+    DynamoDbAsyncClient dynamoDB;
+
+    @Inject
+    UserCache cache;
+
+    public Multi<User> findAll() {
+        return Multi.createFrom().publisher(dynamoDB.scanPaginator(scanRequest()).items())
+                .onItem().transform(User::from);
+    }
+
+    /**
+     * @see UserService#findPage(Integer, String)
+     */
+    public Uni<UserPage> findPage(Integer limit, String cursor) {
+        return findPage(limit, cursor, UserQuery.ALL);
+    }
+
+    /**
+     * @see UserService#findPage(Integer, String, UserQuery)
+     */
+    public Uni<UserPage> findPage(Integer limit, String cursor, UserQuery query) {
+        return Uni.createFrom().item(() -> scanRequest(pageSize(limit), PageCursor.decode(cursor), query))
+                .onItem().transformToUni(request -> Uni.createFrom().completionStage(() -> dynamoDB.scan(request)))
+                .onItem().transform(AbstractService::toPage);
+    }
+
+    /**
+     * @see UserService#add(User)
+     */
+    public Uni<User> add(User user) {
+        user.setVersion(1L);
+        Uni<?> write = user.getUserName() == null
+                ? Uni.createFrom().completionStage(() -> dynamoDB.putItem(createItemRequest(user)))
+                        .onFailure(ConditionalCheckFailedException.class)
+                        .transform(exc -> new ConflictException("user " + user.getUserId() + " already exists"))
+                : Uni.createFrom().completionStage(() -> dynamoDB.transactWriteItems(createRequest(user)))
+                        .onFailure(exc -> exc instanceof TransactionCanceledException && conditionFailed((TransactionCanceledException) exc))
+                        .transform(exc -> new ConflictException("userName " + user.getUserName() + " is already taken"));
+        return write.onItem().transform(response -> {
+            cache.invalidate(user.getUserId());
+            return user;
+        });
+    }
+
+    /**
+     * @see UserService#findByUserName(String)
+     */
+    public Multi<User> findByUserName(String userName) {
+        return findByUserName(userName, UserQuery.ALL);
+    }
+
+    public Multi<User> findByUserName(String userName, UserQuery query) {
+        return Multi.createFrom().publisher(dynamoDB.queryPaginator(userNameQuery(userName, query)).items())
+                .onItem().transform(User::from);
+    }
+
+    /**
+     * @see UserService#get(String, UserQuery)
+     */
+    public Uni<User> get(String userId, UserQuery query) {
+        if (query.selectsAllFields()) {
+            return get(userId);
+        }
+
+        User cached = cache.getIfPresent(userId);
+        if (cached != null) {
+            return Uni.createFrom().item(query.project(cached));
+        }
+        return Uni.createFrom().completionStage(() -> dynamoDB.getItem(getRequest(userId, query)))
+                .onItem().transform(response -> User.from(response.item()));
+    }
+
+    public Uni<User> get(String userId) {
+        User cached = cache.getIfPresent(userId);
+        if (cached != null) {
+            return Uni.createFrom().item(cached);
+        }
+
+        long loadGeneration = cache.generation();
+        return Uni.createFrom().completionStage(() -> dynamoDB.getItem(getRequest(userId)))
+                .onItem().transform(response -> {
+                    User user = User.from(response.item());
+                    cache.put(userId, user, loadGeneration);
+                    return user;
+                });
+    }
+
+    /**
+     * @return the deleted user, or an empty user if there was none
+     */
+    public Uni<User> delete(String userId) {
+        return Uni.createFrom().completionStage(() -> dynamoDB.deleteItem(deleteRequest(userId)))
+                .onItem().transform(response -> User.from(response.attributes()))
+                .onItem().transformToUni(deleted -> deleted.getUserName() == null
+                        ? Uni.createFrom().item(deleted)
+                        : Uni.createFrom().completionStage(() -> dynamoDB.deleteItem(releaseUserNameRequest(deleted.getUserName(), userId)))
+                                .onFailure(ConditionalCheckFailedException.class).recoverWithNull()
+                                .onItem().transform(ignored -> deleted))
+                .onItem().invoke(() -> cache.invalidate(userId));
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Share of the requests rejected over a sliding window, counted in one-second buckets. Only sustained shedding
+ * counts as overload: at least {@code ratio} of the requests in the window were rejected, and rejections happened in
+ * at least half of its seconds, so a short burst alone does not take the task out of rotation.
+ */
+final class RejectionRate {
+
+    private static final long BUCKET_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final double ratio;
+    private final long[] buckets;
+    private final long[] accepted;
+    private final long[] rejected;
+
+    RejectionRate(Duration window, double ratio) {
+        if (ratio <= 0 || ratio > 1) {
+            throw new IllegalArgumentException("Expected 0 < overload-ratio <= 1");
+        }
+        int size = (int) Math.max(1, window.toSeconds());
+        this.ratio = ratio;
+        this.buckets = new long[size];
+        this.accepted = new long[size];
+        this.rejected = new long[size];
+        Arrays.fill(buckets, Long.MIN_VALUE);
+    }
+
+    synchronized void record(boolean rejection, long nanos) {
+        int slot = slot(nanos);
+        if (rejection) {
+            rejected[slot]++;
+        } else {
+            accepted[slot]++;
+        }
+    }
+
+    synchronized boolean sustained(long nanos) {
+        long current = Math.floorDiv(nanos, BUCKET_NANOS);
+        long requests = 0;
+        long rejections = 0;
+        int rejectingSeconds = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            if (buckets[i] > current - buckets.length) {
+                requests += accepted[i] + rejected[i];
+                rejections += rejected[i];
+                rejectingSeconds += rejected[i] > 0 ? 1 : 0;
+            }
+        }
+        return rejections > 0 && rejections >= ratio * requests && rejectingSeconds * 2 >= buckets.length;
+    }
+
+    private int slot(long nanos) {
+        long bucket = Math.floorDiv(nanos, BUCKET_NANOS);
+        int slot = (int) Math.floorMod(bucket, buckets.length);
+        if (buckets[slot] != bucket) {
+            buckets[slot] = bucket;
+            accepted[slot] = 0;
+            rejected[slot] = 0;
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import com.amazon.example.pojo.CacheStats;
+import com.amazon.example.pojo.User;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Size bounded, least-recently-used cache of single users in front of {@code GetItem}. Unknown ids are cached
+ * too (with a shorter TTL), so repeated lookups of missing users do not reach DynamoDB either.
+ * <p>
+ * Loads that race with {@link #invalidate(String)} are not cached: every invalidation bumps a generation counter
+ * and {@link #put(String, User, long)} ignores values loaded under an older generation.
+ */
+@ApplicationScoped
+public class UserCache {
+
+    @ConfigProperty(name = "users.cache.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "users.cache.max-entries", defaultValue = "10000")
+    int maxEntries;
+
+    @ConfigProperty(name = "users.cache.ttl", defaultValue = "PT30S")
+    Duration ttl;
+
+    @ConfigProperty(name = "users.cache.negative-ttl", defaultValue = "PT5S")
+    Duration negativeTtl;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong generation = new AtomicLong();
+
+    private Map<String, Entry> entries;
+
+    @PostConstruct
+    void init() {
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public User get(String userId, Function<String, User> loader) {
+        User cached = getIfPresent(userId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long loadGeneration = generation();
+        User user = loader.apply(userId);
+        put(userId, user, loadGeneration);
+        return user;
+    }
+
+    /**
+     * @return a copy of the cached user, an empty user for a cached miss, or {@code null} if nothing is cached
+     */
+    public User getIfPresent(String userId) {
+        if (!enabled) {
+            return null;
+        }
+
+        long now = System.nanoTime();
+        synchronized (this) {
+            Entry entry = entries.get(userId);
+            if (entry != null && entry.expiresAt - now > 0) {
+                hits.incrementAndGet();
+                return copy(entry.user);
+            }
+            if (entry != null) {
+                entries.remove(userId);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Caches {@code user}, or a miss if its id is {@code null}, unless the cache was invalidated since
+     * {@code loadGeneration} was read.
+     */
+    public void put(String userId, User user, long loadGeneration) {
+        if (!enabled) {
+            return;
+        }
+
+        Duration timeToLive = user.getUserId() == null ? negativeTtl : ttl;
+        Entry entry = new Entry(copy(user), System.nanoTime() + timeToLive.toNanos());
+        synchronized (this) {
+            if (generation.get() == loadGeneration) {
+                entries.put(userId, entry);
+            }
+        }
+    }
+
+    public void invalidate(String userId) {
+        synchronized (this) {
+            generation.incrementAndGet();
+            entries.remove(userId);
+        }
+    }
+
+    public CacheStats stats() {
+        int size;
+        synchronized (this) {
+            size = entries.size();
+        }
+        return new CacheStats(hits.get(), misses.get(), evictions.get(), size);
+    }
+
+    private static User copy(User user) {
+        User copy = new User(user.getUserId(), user.getUserName(), user.getFirstName(), user.getLastName(), user.getAge());
+        copy.setVersion(user.getVersion());
+        return copy;
+    }
+
+    private static final class Entry {
+
+        private final User user;
+        private final long expiresAt;
+
+        private Entry(User user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
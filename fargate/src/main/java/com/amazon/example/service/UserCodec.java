@@ -0,0 +1,99 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import com.amazon.example.pojo.User;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.amazon.example.service.AbstractService.USER_AGE_COL;
+import static com.amazon.example.service.AbstractService.USER_FIRSTNAME_COL;
+import static com.amazon.example.service.AbstractService.USER_ID_COL;
+import static com.amazon.example.service.AbstractService.USER_LASTNAME_COL;
+import static com.amazon.example.service.AbstractService.USER_USERNAME_COL;
+import static com.amazon.example.service.AbstractService.USER_VERSION_COL;
+
+/**
+ * Hand-written mapping between {@link User} and DynamoDB items. It uses no reflection, so it behaves the same in
+ * JVM and native mode, and it tolerates missing or {@code null} attributes in both directions.
+ */
+public final class UserCodec {
+
+    // HashMap capacity that holds all six columns without resizing
+    private static final int ITEM_CAPACITY = 8;
+
+    private UserCodec() {
+    }
+
+    public static Map<String, AttributeValue> toItem(User user) {
+        Map<String, AttributeValue> item = new HashMap<>(ITEM_CAPACITY);
+        putString(item, USER_ID_COL, user.getUserId());
+        putString(item, USER_USERNAME_COL, user.getUserName());
+        putString(item, USER_FIRSTNAME_COL, user.getFirstName());
+        putString(item, USER_LASTNAME_COL, user.getLastName());
+        if (user.getAge() != null) {
+            item.put(USER_AGE_COL, AttributeValue.builder().n(user.getAge().toString()).build());
+        }
+        if (user.getVersion() != null) {
+            item.put(USER_VERSION_COL, AttributeValue.builder().n(user.getVersion().toString()).build());
+        }
+        return item;
+    }
+
+    /**
+     * The SDK request builders copy key maps on {@code build()}, so the immutable map is safe to pass but does not
+     * save the copy.
+     */
+    public static Map<String, AttributeValue> key(String userId) {
+        return Collections.singletonMap(USER_ID_COL, AttributeValue.builder().s(userId).build());
+    }
+
+    public static User fromItem(Map<String, AttributeValue> item) {
+        User user = new User();
+        if (item == null || item.isEmpty()) {
+            return user;
+        }
+
+        user.setUserId(string(item.get(USER_ID_COL)));
+        user.setUserName(string(item.get(USER_USERNAME_COL)));
+        user.setFirstName(string(item.get(USER_FIRSTNAME_COL)));
+        user.setLastName(string(item.get(USER_LASTNAME_COL)));
+
+        AttributeValue age = item.get(USER_AGE_COL);
+        if (age != null && age.n() != null) {
+            user.setAge(Integer.parseInt(age.n()));
+        }
+        AttributeValue version = item.get(USER_VERSION_COL);
+        if (version != null && version.n() != null) {
+            user.setVersion(Long.parseLong(version.n()));
+        }
+        return user;
+    }
+
+    private static void putString(Map<String, AttributeValue> item, String column, String value) {
+        // DynamoDB rejects attribute values without a type, so absent fields are left out of the item
+        if (value != null) {
+            item.put(column, AttributeValue.builder().s(value).build());
+        }
+    }
+
+    private static String string(AttributeValue value) {
+        return value != null ? value.s() : null;
+    }
+}
@@ -15,12 +15,44 @@
  */
 package com.amazon.example.service;
 
+import com.amazon.example.pojo.BatchItemResult;
 import com.amazon.example.pojo.User;
+import com.amazon.example.pojo.UserPage;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Metrics;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @ApplicationScoped
@@ -29,25 +61,567 @@ public class UserService extends AbstractService {
     @Inject
     DynamoDbClient dynamoDB;
 
+    @Inject
+    UserCache cache;
+
+    @ConfigProperty(name = "users.scan.segments", defaultValue = "1")
+    int scanSegments;
+
+    @ConfigProperty(name = "users.scan.page-size", defaultValue = "1000")
+    int scanPageSize;
+
+    @ConfigProperty(name = "users.executor.threads", defaultValue = "4")
+    int executorThreads;
+
+    @ConfigProperty(name = "users.batch.max-attempts", defaultValue = "5")
+    int batchMaxAttempts;
+
+    private ExecutorService executor;
+
+    // Concurrent identical reads share one DynamoDB call. The keys include the cache generation, so a read that
+    // starts after a write through this task never joins a call that started before it.
+    final SingleFlight<List<Object>, User> userReads = new SingleFlight<>();
+    final SingleFlight<List<Object>, UserPage> pageReads = new SingleFlight<>();
+    final SingleFlight<Long, List<User>> scans = new SingleFlight<>();
+
+    @PostConstruct
+    void init() {
+        register("get", userReads);
+        register("page", pageReads);
+        register("scan", scans);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(executorThreads, runnable -> {
+            Thread thread = new Thread(runnable, "user-service-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
     public List<User> findAll() {
-        return dynamoDB.scanPaginator(scanRequest()).items().stream()
+        return scans.execute(cache.generation(), () -> {
+            if (scanSegments > 1) {
+                List<User> users = new ArrayList<>();
+                parallelScan(users::addAll);
+                return users;
+            }
+
+            return dynamoDB.scanPaginator(scanRequest()).items().stream()
+                    .map(User::from)
+                    .collect(Collectors.toList());
+        });
+    }
+
+    /**
+     * Reads a single page of at most {@code limit} users, starting after {@code cursor}.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public UserPage findPage(Integer limit, String cursor) {
+        return findPage(limit, cursor, UserQuery.ALL);
+    }
+
+    /**
+     * Like {@link #findPage(Integer, String)}, returning only the attributes and users selected by {@code query}.
+     */
+    public UserPage findPage(Integer limit, String cursor, UserQuery query) {
+        if (query != UserQuery.ALL) {
+            return toPage(dynamoDB.scan(scanRequest(pageSize(limit), PageCursor.decode(cursor), query)));
+        }
+        return pageReads.execute(Arrays.asList(pageSize(limit), cursor, cache.generation()),
+                () -> toPage(dynamoDB.scan(scanRequest(pageSize(limit), PageCursor.decode(cursor)))));
+    }
+
+    /**
+     * Hands the whole table to {@code consumer} one scan page at a time. With a single segment the next page is
+     * already being fetched while the consumer processes the current one; with {@code users.scan.segments} above
+     * one the segments are scanned concurrently and pages are handed over in order of arrival.
+     */
+    public void forEachPage(Consumer<List<User>> consumer) {
+        if (scanSegments > 1) {
+            parallelScan(consumer);
+            return;
+        }
+
+        CompletableFuture<ScanResponse> next = scanAsync(null);
+        try {
+            while (next != null) {
+                ScanResponse page = join(next);
+                next = page.lastEvaluatedKey().isEmpty() ? null : scanAsync(page.lastEvaluatedKey());
+
+                consumer.accept(toUsers(page.items()));
+            }
+        } finally {
+            if (next != null) {
+                next.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Creates the user. A userName is reserved in the same transaction and must not be taken by another user.
+     *
+     * @throws ConflictException if the userName is already taken
+     */
+    public User add(User user) {
+        user.setVersion(1L);
+        if (user.getUserName() == null) {
+            try {
+                dynamoDB.putItem(createItemRequest(user));
+            } catch (ConditionalCheckFailedException exc) {
+                throw new ConflictException("user " + user.getUserId() + " already exists");
+            }
+        } else {
+            try {
+                dynamoDB.transactWriteItems(createRequest(user));
+            } catch (TransactionCanceledException exc) {
+                if (conditionFailed(exc)) {
+                    throw new ConflictException(userNameTaken(user.getUserName()));
+                }
+                throw exc;
+            }
+        }
+        cache.invalidate(user.getUserId());
+
+        return user;
+    }
+
+    /**
+     * Looks up all ids, serving what it can from the cache and reading the rest with {@code BatchGetItem} in
+     * concurrent chunks of 100 keys. Unknown ids are skipped, the others are returned in request order.
+     */
+    public List<User> getAll(List<String> userIds, UserQuery query) {
+        List<User> users = getAll(userIds);
+        if (query.selectsAllFields()) {
+            return users;
+        }
+
+        // projected after the fact, as the users are read through the cache
+        List<User> projected = new ArrayList<>(users.size());
+        for (User user : users) {
+            projected.add(query.project(user));
+        }
+        return projected;
+    }
+
+    public List<User> getAll(List<String> userIds) {
+        List<String> distinctIds = new ArrayList<>(new LinkedHashSet<>(userIds));
+        Map<String, User> found = new HashMap<>();
+        List<String> uncached = new ArrayList<>();
+        for (String userId : distinctIds) {
+            User cached = cache.getIfPresent(userId);
+            if (cached == null) {
+                uncached.add(userId);
+            } else if (cached.getUserId() != null) {
+                found.put(userId, cached);
+            }
+        }
+
+        long loadGeneration = cache.generation();
+        for (User user : toUsers(batchGet(getTableName(), uncached, this::batchGetRequest))) {
+            found.put(user.getUserId(), user);
+        }
+        for (String userId : uncached) {
+            cache.put(userId, found.getOrDefault(userId, new User()), loadGeneration);
+        }
+
+        List<User> users = new ArrayList<>(found.size());
+        for (String userId : distinctIds) {
+            User user = found.get(userId);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Looks up users on the {@code userName-index} GSI, a single-partition query instead of a table scan.
+     * The index is eventually consistent, so a user created a moment ago may not be found yet.
+     */
+    public List<User> findByUserName(String userName) {
+        return findByUserName(userName, UserQuery.ALL);
+    }
+
+    public List<User> findByUserName(String userName, UserQuery query) {
+        return dynamoDB.queryPaginator(userNameQuery(userName, query)).items().stream()
                 .map(User::from)
                 .collect(Collectors.toList());
     }
 
-    public List<User> add(User user) {
-        dynamoDB.putItem(putRequest(user));
+    /**
+     * Writes all users and their userName reservations with {@code BatchWriteItem}, 25 writes per call and with the
+     * calls running concurrently. Unprocessed items are retried with jittered backoff up to
+     * {@code users.batch.max-attempts} times.
+     * <p>
+     * {@code BatchWriteItem} cannot be conditional, so userNames are checked against the reservations and the rest
+     * of the batch up front. Unlike {@link #add(User)} this leaves a short window for a concurrent create of the same
+     * userName.
+     */
+    public List<BatchItemResult> addAll(List<User> users) {
+        Map<String, String> owners = userNameOwners(users);
+
+        List<Map.Entry<String, WriteRequest>> requests = new ArrayList<>(users.size() * 2);
+        List<WriteRequest> puts = new ArrayList<>(users.size());
+        for (User user : users) {
+            String userName = user.getUserName();
+            String owner = userName != null ? owners.putIfAbsent(userName, user.getUserId()) : null;
+            if (owner != null && !owner.equals(user.getUserId())) {
+                puts.add(null);
+                continue;
+            }
+
+            user.setVersion(1L);
+            WriteRequest put = putWriteRequest(user);
+            puts.add(put);
+            requests.add(Map.entry(getTableName(), put));
+            if (userName != null) {
+                requests.add(Map.entry(USER_NAMES_TABLE, reserveUserNameWriteRequest(user)));
+            }
+        }
+
+        Map<WriteRequest, String> failures = batchWrite(requests);
+
+        List<BatchItemResult> results = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            cache.invalidate(user.getUserId());
+            if (puts.get(i) == null) {
+                results.add(new BatchItemResult(user.getUserId(), BatchItemResult.Status.CONFLICT, userNameTaken(user.getUserName())));
+                continue;
+            }
+            String error = failures.get(puts.get(i));
+            results.add(new BatchItemResult(user.getUserId(),
+                    error == null ? BatchItemResult.Status.CREATED : BatchItemResult.Status.FAILED, error));
+        }
+        return results;
+    }
+
+    /**
+     * Deletes all users and releases their userNames with {@code BatchWriteItem}, see {@link #addAll(List)}.
+     * Duplicate ids are deleted once.
+     */
+    public List<BatchItemResult> deleteAll(List<String> userIds) {
+        List<String> distinctIds = new ArrayList<>(new LinkedHashSet<>(userIds));
 
-        return findAll();
+        // BatchWriteItem does not return deleted items, so the userNames to release are read first
+        Map<String, String> userNames = new HashMap<>();
+        for (User user : toUsers(batchGet(getTableName(), distinctIds, this::batchGetRequest))) {
+            if (user.getUserName() != null) {
+                userNames.put(user.getUserId(), user.getUserName());
+            }
+        }
+
+        List<Map.Entry<String, WriteRequest>> requests = new ArrayList<>(distinctIds.size() + userNames.size());
+        List<WriteRequest> deletes = new ArrayList<>(distinctIds.size());
+        for (String userId : distinctIds) {
+            WriteRequest delete = deleteWriteRequest(userId);
+            deletes.add(delete);
+            requests.add(Map.entry(getTableName(), delete));
+            String userName = userNames.get(userId);
+            if (userName != null) {
+                requests.add(Map.entry(USER_NAMES_TABLE, releaseUserNameWriteRequest(userName)));
+            }
+        }
+
+        Map<WriteRequest, String> failures = batchWrite(requests);
+
+        List<BatchItemResult> results = new ArrayList<>(distinctIds.size());
+        for (int i = 0; i < distinctIds.size(); i++) {
+            String userId = distinctIds.get(i);
+            cache.invalidate(userId);
+            String error = failures.get(deletes.get(i));
+            results.add(new BatchItemResult(userId,
+                    error == null ? BatchItemResult.Status.DELETED : BatchItemResult.Status.FAILED, error));
+        }
+        return results;
     }
 
     public User get(String userId) {
-        return User.from(dynamoDB.getItem(getRequest(userId)).item());
+        return cache.get(userId, id -> userReads.execute(List.of(id, cache.generation()),
+                () -> User.from(dynamoDB.getItem(getRequest(id)).item())));
+    }
+
+    /**
+     * Serves a cached user, projected to the requested fields. Otherwise only those fields are read, and the
+     * partial user is not cached.
+     */
+    public User get(String userId, UserQuery query) {
+        if (query.selectsAllFields()) {
+            return get(userId);
+        }
+
+        User cached = cache.getIfPresent(userId);
+        if (cached != null) {
+            return query.project(cached);
+        }
+        return User.from(dynamoDB.getItem(getRequest(userId, query)).item());
+    }
+
+    /**
+     * Updates the attributes set in {@code changes} with {@code UpdateItem}, or with {@code replace} all mutable
+     * attributes, provided the user is still at {@code expectedVersion}. A new userName moves the reservation in the
+     * same transaction, which needs one extra consistent read for the current name.
+     *
+     * @return the updated user, or an empty user if there was none
+     * @throws ConflictException        if the user has been updated in the meantime or the new userName is taken
+     * @throws IllegalArgumentException if {@code replace} is set without a userName
+     */
+    public User update(String userId, User changes, long expectedVersion, boolean replace) {
+        if (replace && changes.getUserName() == null) {
+            throw new IllegalArgumentException("userName is required");
+        }
+
+        User updated;
+        User current = changes.getUserName() != null
+                ? User.from(dynamoDB.getItem(consistentGetRequest(userId)).item())
+                : null;
+        if (current != null && current.getUserId() == null) {
+            return current;
+        }
+
+        if (current != null && !changes.getUserName().equals(current.getUserName())) {
+            checkVersion(current, expectedVersion);
+            try {
+                dynamoDB.transactWriteItems(renameRequest(userId, changes, expectedVersion, replace, current.getUserName()));
+            } catch (TransactionCanceledException exc) {
+                if (conditionFailed(exc)) {
+                    throw new ConflictException("userName " + changes.getUserName() + " is already taken or user " + userId + " has been updated");
+                }
+                throw exc;
+            }
+            updated = User.from(dynamoDB.getItem(consistentGetRequest(userId)).item());
+        } else {
+            try {
+                updated = User.from(dynamoDB.updateItem(updateRequest(userId, changes, expectedVersion, replace)).attributes());
+            } catch (ConditionalCheckFailedException exc) {
+                User latest = User.from(dynamoDB.getItem(consistentGetRequest(userId)).item());
+                if (latest.getUserId() == null) {
+                    return latest;
+                }
+                checkVersion(latest, expectedVersion);
+                // the condition failed for a version that matches now, e.g. the user was deleted and created again
+                throw new ConflictException("user " + userId + " was changed concurrently");
+            }
+        }
+        cache.invalidate(userId);
+
+        return updated;
+    }
+
+    /**
+     * @return the deleted user as returned by {@code ReturnValues=ALL_OLD}, or an empty user if there was none
+     */
+    public User delete(String userId) {
+        User deleted = User.from(dynamoDB.deleteItem(deleteRequest(userId)).attributes());
+        if (deleted.getUserName() != null) {
+            try {
+                dynamoDB.deleteItem(releaseUserNameRequest(deleted.getUserName(), userId));
+            } catch (ConditionalCheckFailedException exc) {
+                // the userName is reserved for another user, e.g. one created before reservations existed
+            }
+        }
+        cache.invalidate(userId);
+
+        return deleted;
+    }
+
+    /**
+     * Scans all segments concurrently on the executor. The consumer is never called concurrently. The first failing
+     * segment cancels the others, which stop after their current page, and the failure is only rethrown once every
+     * segment has stopped, so the consumer is never called after this method returned.
+     */
+    private void parallelScan(Consumer<List<User>> consumer) {
+        Object lock = new Object();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        CompletableFuture<Void> failure = new CompletableFuture<>();
+        List<CompletableFuture<Void>> segments = new ArrayList<>(scanSegments);
+
+        for (int segment = 0; segment < scanSegments; segment++) {
+            int current = segment;
+            CompletableFuture<Void> worker = CompletableFuture.runAsync(() -> {
+                Map<String, AttributeValue> exclusiveStartKey = null;
+                while (!cancelled.get()) {
+                    ScanResponse page = dynamoDB.scan(segmentScanRequest(current, scanSegments, scanPageSize, exclusiveStartKey));
+                    List<User> users = toUsers(page.items());
+                    synchronized (lock) {
+                        if (!cancelled.get()) {
+                            consumer.accept(users);
+                        }
+                    }
+                    if (page.lastEvaluatedKey().isEmpty()) {
+                        return;
+                    }
+                    exclusiveStartKey = page.lastEvaluatedKey();
+                }
+            }, executor);
+            // completes after the handler ran, so the failure is recorded before allOf below completes
+            segments.add(worker.whenComplete((ignored, exc) -> {
+                if (exc != null) {
+                    cancelled.set(true);
+                    failure.completeExceptionally(exc);
+                }
+            }));
+        }
+
+        try {
+            CompletableFuture.allOf(segments.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException exc) {
+            // rethrows the segment that failed first rather than whichever allOf reports
+            join(failure);
+        }
+    }
+
+    /**
+     * Reads the keys of one table with {@code BatchGetItem}, in concurrent chunks of 100.
+     */
+    private List<Map<String, AttributeValue>> batchGet(String tableName, List<String> keys,
+                                                       Function<List<String>, BatchGetItemRequest> requestBuilder) {
+        List<CompletableFuture<List<Map<String, AttributeValue>>>> chunks = new ArrayList<>();
+        for (List<String> chunk : partition(keys, BATCH_GET_CHUNK_SIZE)) {
+            BatchGetItemRequest request = requestBuilder.apply(chunk);
+            chunks.add(CompletableFuture.supplyAsync(() -> batchGetChunk(tableName, request), executor));
+        }
+
+        List<Map<String, AttributeValue>> items = new ArrayList<>(keys.size());
+        for (CompletableFuture<List<Map<String, AttributeValue>>> chunk : chunks) {
+            items.addAll(join(chunk));
+        }
+        return items;
     }
 
-    public List<User> delete(String userId) {
-        dynamoDB.deleteItem(deleteRequest(userId));
+    private List<Map<String, AttributeValue>> batchGetChunk(String tableName, BatchGetItemRequest request) {
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        for (int attempt = 1; ; attempt++) {
+            BatchGetItemResponse response = dynamoDB.batchGetItem(request);
+            items.addAll(response.responses().getOrDefault(tableName, List.of()));
+
+            if (response.unprocessedKeys().isEmpty()) {
+                return items;
+            }
+            if (attempt >= batchMaxAttempts) {
+                throw new IllegalStateException("Unprocessed keys after " + attempt + " attempts");
+            }
+            request = request.toBuilder().requestItems(response.unprocessedKeys()).build();
+            try {
+                Thread.sleep(backoffMillis(attempt));
+            } catch (InterruptedException exc) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while retrying unprocessed keys", exc);
+            }
+        }
+    }
+
+    /**
+     * @return the requests that could not be written, mapped to the reason
+     */
+    private Map<WriteRequest, String> batchWrite(List<Map.Entry<String, WriteRequest>> requests) {
+        List<CompletableFuture<Map<WriteRequest, String>>> chunks = new ArrayList<>();
+        for (List<Map.Entry<String, WriteRequest>> chunk : partition(requests, BATCH_WRITE_CHUNK_SIZE)) {
+            Map<String, List<WriteRequest>> byTable = new HashMap<>();
+            for (Map.Entry<String, WriteRequest> request : chunk) {
+                byTable.computeIfAbsent(request.getKey(), table -> new ArrayList<>()).add(request.getValue());
+            }
+            chunks.add(CompletableFuture.supplyAsync(() -> batchWriteChunk(byTable), executor));
+        }
+
+        Map<WriteRequest, String> failures = new HashMap<>();
+        for (CompletableFuture<Map<WriteRequest, String>> chunk : chunks) {
+            failures.putAll(join(chunk));
+        }
+        return failures;
+    }
+
+    private Map<WriteRequest, String> batchWriteChunk(Map<String, List<WriteRequest>> chunk) {
+        Map<String, List<WriteRequest>> pending = chunk;
+        try {
+            for (int attempt = 1; ; attempt++) {
+                BatchWriteItemResponse response = dynamoDB.batchWriteItem(BatchWriteItemRequest.builder()
+                        .requestItems(pending)
+                        .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                        .build());
+
+                pending = response.unprocessedItems();
+                if (pending.isEmpty()) {
+                    return Map.of();
+                }
+                if (attempt >= batchMaxAttempts) {
+                    return failed(pending, "Unprocessed after " + attempt + " attempts");
+                }
+                Thread.sleep(backoffMillis(attempt));
+            }
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            return failed(pending, "Interrupted");
+        } catch (SdkException exc) {
+            return failed(pending, exc.getMessage());
+        }
+    }
+
+    private static String userNameTaken(String userName) {
+        return "userName " + userName + " is already taken";
+    }
+
+    private static void register(String operation, SingleFlight<?, ?> flight) {
+        FunctionCounter.builder("users.reads", flight, SingleFlight::issued)
+                .description("Reads sent to DynamoDB")
+                .tags("operation", operation, "outcome", "issued")
+                .register(Metrics.globalRegistry);
+        FunctionCounter.builder("users.reads", flight, SingleFlight::coalesced)
+                .description("Reads answered by an identical read already in flight")
+                .tags("operation", operation, "outcome", "coalesced")
+                .register(Metrics.globalRegistry);
+    }
+
+    private static void checkVersion(User user, long expectedVersion) {
+        long version = user.getVersion() != null ? user.getVersion() : 0;
+        if (version != expectedVersion) {
+            throw new ConflictException("user " + user.getUserId() + " is at version " + version + ", not " + expectedVersion);
+        }
+    }
+
+    private static Map<WriteRequest, String> failed(Map<String, List<WriteRequest>> requests, String error) {
+        Map<WriteRequest, String> failures = new HashMap<>();
+        for (List<WriteRequest> tableRequests : requests.values()) {
+            for (WriteRequest request : tableRequests) {
+                failures.put(request, error);
+            }
+        }
+        return failures;
+    }
+
+    private Map<String, String> userNameOwners(List<User> users) {
+        Set<String> userNames = new LinkedHashSet<>();
+        for (User user : users) {
+            if (user.getUserName() != null) {
+                userNames.add(user.getUserName());
+            }
+        }
+
+        Map<String, String> owners = new HashMap<>();
+        for (Map<String, AttributeValue> item : batchGet(USER_NAMES_TABLE, new ArrayList<>(userNames), this::userNamesBatchGetRequest)) {
+            owners.put(item.get(USER_USERNAME_COL).s(), item.get(USER_ID_COL).s());
+        }
+        return owners;
+    }
+
+    private CompletableFuture<ScanResponse> scanAsync(Map<String, AttributeValue> exclusiveStartKey) {
+        return CompletableFuture.supplyAsync(() -> dynamoDB.scan(scanRequest(scanPageSize, exclusiveStartKey)), executor);
+    }
 
-        return findAll();
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException exc) {
+            if (exc.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exc.getCause();
+            }
+            throw exc;
+        }
     }
 }
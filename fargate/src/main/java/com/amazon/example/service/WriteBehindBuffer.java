@@ -0,0 +1,237 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import com.amazon.example.pojo.BatchItemResult;
+import com.amazon.example.pojo.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.quarkus.runtime.ShutdownEvent;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind path for {@code POST /users}. Users are queued in a bounded buffer and written with
+ * {@link UserService#addAll(List)} once {@code users.write-behind.batch-size} users are waiting or the oldest one has
+ * waited {@code users.write-behind.max-delay}. The future returned to each caller completes only once its user is
+ * stored, so an acknowledged create is as durable as a synchronous one. Like {@code addAll}, the userName check is
+ * not part of the write, which leaves a short window for concurrent creates of the same userName on other tasks.
+ * <p>
+ * The buffer stops accepting users on shutdown and writes what is queued before the service is destroyed. Users still
+ * queued when {@code users.write-behind.drain-timeout} runs out are failed with {@link WriteBufferFullException}.
+ */
+@ApplicationScoped
+public class WriteBehindBuffer {
+
+    private static final Logger LOGGER = Logger.getLogger(WriteBehindBuffer.class);
+
+    private static final long POLL_MILLIS = 100;
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(POLL_MILLIS);
+
+    @ConfigProperty(name = "users.write-behind.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "users.write-behind.capacity", defaultValue = "1000")
+    int capacity;
+
+    @ConfigProperty(name = "users.write-behind.batch-size", defaultValue = "100")
+    int batchSize;
+
+    @ConfigProperty(name = "users.write-behind.max-delay", defaultValue = "PT0.02S")
+    Duration maxDelay;
+
+    @ConfigProperty(name = "users.write-behind.drain-timeout", defaultValue = "PT10S")
+    Duration drainTimeout;
+
+    @Inject
+    UserService service;
+
+    private BlockingQueue<Pending> queue;
+    private Thread flusher;
+    private Counter rejected;
+    private DistributionSummary batches;
+    // guards closed against offers, so nothing is queued after the flusher may have seen the queue empty for good
+    private final Object lock = new Object();
+    private volatile boolean closed;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(capacity);
+        Gauge.builder("users.write.buffer.size", queue, BlockingQueue::size)
+                .description("Users waiting to be written")
+                .register(Metrics.globalRegistry);
+        rejected = Counter.builder("users.write.buffer.rejected")
+                .description("Creates rejected with 429 because the buffer was full")
+                .register(Metrics.globalRegistry);
+        batches = DistributionSummary.builder("users.write.batch.size")
+                .baseUnit("users")
+                .description("Users written per flush")
+                .register(Metrics.globalRegistry);
+
+        flusher = new Thread(this::run, "users-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        drain();
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * @return completes with the stored user, or with a {@link ConflictException} if the userName is taken
+     * @throws WriteBufferFullException if the buffer is full or shutting down
+     */
+    public CompletionStage<User> submit(User user) {
+        Pending pending = new Pending(user);
+        synchronized (lock) {
+            if (closed || !queue.offer(pending)) {
+                rejected.increment();
+                throw new WriteBufferFullException(closed ? "Shutting down" : "Too many pending creates");
+            }
+        }
+        return pending.result;
+    }
+
+    void drain() {
+        if (!enabled || closed) {
+            return;
+        }
+        synchronized (lock) {
+            closed = true;
+        }
+        try {
+            flusher.join(drainTimeout.toMillis());
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<Pending> leftovers = new ArrayList<>();
+        queue.drainTo(leftovers);
+        if (!leftovers.isEmpty()) {
+            LOGGER.warnf("%d users still queued after %s, not written", leftovers.size(), drainTimeout);
+        }
+        for (Pending pending : leftovers) {
+            pending.result.completeExceptionally(new WriteBufferFullException("Shutting down"));
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                collect(batch);
+            } catch (InterruptedException exc) {
+                // not expected, the flusher is stopped through closed; write what was collected and carry on
+                Thread.interrupted();
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void collect(List<Pending> batch) throws InterruptedException {
+        Pending first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + maxDelay.toNanos();
+        while (batch.size() < batchSize) {
+            if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            // on shutdown there is no point in waiting for more users
+            if (remaining <= 0 || closed) {
+                return;
+            }
+            // waits in slices, so a shutdown does not have to sit out max-delay with users held in the batch
+            Pending next = queue.poll(Math.min(remaining, POLL_NANOS), TimeUnit.NANOSECONDS);
+            if (next != null) {
+                batch.add(next);
+            }
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        batches.record(batch.size());
+        List<User> users = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            users.add(pending.user);
+        }
+
+        List<BatchItemResult> results;
+        try {
+            results = service.addAll(users);
+        } catch (RuntimeException exc) {
+            for (Pending pending : batch) {
+                pending.result.completeExceptionally(exc);
+            }
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            Pending pending = batch.get(i);
+            BatchItemResult result = results.get(i);
+            switch (result.getStatus()) {
+                case CREATED:
+                    pending.result.complete(pending.user);
+                    break;
+                case CONFLICT:
+                    pending.result.completeExceptionally(new ConflictException(result.getError()));
+                    break;
+                default:
+                    pending.result.completeExceptionally(
+                            new IllegalStateException("User " + pending.user.getUserId() + " not written: " + result.getError()));
+            }
+        }
+    }
+
+    private static final class Pending {
+
+        final User user;
+        final CompletableFuture<User> result = new CompletableFuture<>();
+
+        Pending(User user) {
+            this.user = user;
+        }
+    }
+}
@@ -30,7 +30,6 @@ import org.junit.jupiter.api.Test;
 import io.vertx.core.json.JsonObject;
 
 import javax.inject.Inject;
-import java.util.List;
 
 @QuarkusTest
 public class UserResourceTest {
@@ -77,7 +76,8 @@ public class UserResourceTest {
 
             // Delete the user
 
-            List<User> userList = service.delete(tmpUser.getUserId());
+            User deletedUser = service.delete(tmpUser.getUserId());
+            assertEquals(deletedUser, tmpUser);
 
             // Try to read it again
             User tmp2User = service.get(tmpUser.getUserId());
@@ -92,4 +92,35 @@ public class UserResourceTest {
         assertFalse(exception);
     }
 
+    @Test
+    public void testVersionedUpdate() {
+        String body = new JsonObject()
+                .put("userName", "janedoe-" + System.nanoTime())
+                .put("firstName", "Jane")
+                .put("lastName", "Doe")
+                .put("age", 37).toString();
+
+        String userId = given()
+                .contentType(ContentType.JSON).body(body)
+                .post("/users").then().statusCode(200)
+                .body("version", is(1))
+                .extract().path("userId");
+
+        try {
+            given()
+                    .contentType(ContentType.JSON).body(new JsonObject().put("lastName", "Roe").put("version", 1).toString())
+                    .patch("/users/" + userId).then().statusCode(200)
+                    .body("firstName", is("Jane"))
+                    .body("lastName", is("Roe"))
+                    .body("version", is(2));
+
+            // a second writer that still holds version 1 must not overwrite the update
+            given()
+                    .contentType(ContentType.JSON).body(new JsonObject().put("lastName", "Poe").put("version", 1).toString())
+                    .patch("/users/" + userId).then().statusCode(409);
+        } finally {
+            service.delete(userId);
+        }
+    }
+
 }
\ No newline at end of file
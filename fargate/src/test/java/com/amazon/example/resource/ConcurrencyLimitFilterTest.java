@@ -0,0 +1,48 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.resource;
+
+import com.amazon.example.service.ConcurrencyLimits;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@QuarkusTest
+public class ConcurrencyLimitFilterTest {
+
+    private static final String ROUTE = "GET /test/failing";
+
+    @Inject
+    ConcurrencyLimits limits;
+
+    @Test
+    public void releasesPermitsOfUnmappedExceptions() throws InterruptedException {
+        // more failures than the initial limit, a leaked permit per request would turn the last ones into 503
+        for (int i = 0; i < 30; i++) {
+            given().when().get("/test/failing").then().statusCode(500);
+        }
+
+        // the permit is released by the end handler, which may run just after the client has the response
+        for (int i = 0; i < 50 && limits.inFlight(ROUTE) > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, limits.inFlight(ROUTE));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdaptiveLimitTest {
+
+    @Test
+    public void rejectsRequestsOverTheLimit() {
+        AdaptiveLimit limit = new AdaptiveLimit(2, 1, 10);
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        assertEquals(1, limit.rejected());
+
+        limit.release(false);
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    public void growsWhileHealthyAndBacksOffWhenOverloaded() {
+        AdaptiveLimit limit = new AdaptiveLimit(10, 2, 12);
+        for (int i = 0; i < 100; i++) {
+            for (int j = 0; j < limit.limit(); j++) {
+                limit.tryAcquire();
+            }
+            while (limit.inFlight() > 0) {
+                limit.release(false);
+            }
+        }
+        assertEquals(12, limit.limit());
+
+        limit.tryAcquire();
+        limit.release(true);
+        assertEquals((int) (12 * AdaptiveLimit.BACKOFF), limit.limit());
+
+        // decreases within the same interval count once
+        limit.tryAcquire();
+        limit.release(true);
+        assertEquals((int) (12 * AdaptiveLimit.BACKOFF), limit.limit());
+    }
+
+    @Test
+    public void neverShrinksBelowTheMinimum() throws InterruptedException {
+        AdaptiveLimit limit = new AdaptiveLimit(4, 3, 10);
+        for (int i = 0; i < 5; i++) {
+            limit.tryAcquire();
+            limit.release(true);
+            Thread.sleep(110);
+        }
+        assertEquals(3, limit.limit());
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import com.amazon.example.pojo.User;
+import com.amazon.example.pojo.UserPage;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EntityTagsTest {
+
+    @Test
+    public void tagsChangeWithTheVersion() {
+        User user = user(1);
+
+        assertEquals(EntityTags.of(user), EntityTags.of(user(1)));
+        assertNotEquals(EntityTags.of(user), EntityTags.of(user(2)));
+        assertNotEquals(EntityTags.of(List.of(user)), EntityTags.of(new UserPage(List.of(user), "cursor", null)));
+        assertNull(EntityTags.of("not a user"));
+    }
+
+    @Test
+    public void matchesWeakAndStrongFormsOfTheTag() {
+        String tag = EntityTags.of(user(1));
+
+        assertTrue(EntityTags.matches("W/\"" + tag + "\"", tag));
+        assertTrue(EntityTags.matches("\"" + tag + "\"", tag));
+        assertTrue(EntityTags.matches("\"other\", W/\"" + tag + "\"", tag));
+        assertTrue(EntityTags.matches("*", tag));
+    }
+
+    @Test
+    public void rejectsOtherTagsAndMalformedValues() {
+        String tag = EntityTags.of(user(1));
+
+        assertFalse(EntityTags.matches(null, tag));
+        assertFalse(EntityTags.matches("\"" + EntityTags.of(user(2)) + "\"", tag));
+        assertFalse(EntityTags.matches(tag, tag));
+        assertFalse(EntityTags.matches("\"" + tag + "x\"", tag));
+        assertFalse(EntityTags.matches("", tag));
+    }
+
+    private static User user(long version) {
+        User user = new User("id-1", "jdoe", "John", "Doe", 42);
+        user.setVersion(version);
+        return user;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RejectionRateTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void ignoresASingleBurst() {
+        RejectionRate rate = new RejectionRate(Duration.ofSeconds(10), 0.25);
+        for (int i = 0; i < 100; i++) {
+            rate.record(true, 5 * SECOND);
+        }
+        assertFalse(rate.sustained(5 * SECOND));
+    }
+
+    @Test
+    public void reportsSustainedRejections() {
+        RejectionRate rate = new RejectionRate(Duration.ofSeconds(10), 0.25);
+        for (int second = 0; second < 4; second++) {
+            record(rate, second, 6, 4);
+            assertFalse(rate.sustained(second * SECOND));
+        }
+        // rejections in half of the window's seconds
+        record(rate, 4, 6, 4);
+        assertTrue(rate.sustained(4 * SECOND));
+
+        // the rejecting seconds slide out of the window
+        record(rate, 12, 10, 0);
+        assertFalse(rate.sustained(12 * SECOND));
+    }
+
+    @Test
+    public void ignoresALowRejectionRate() {
+        RejectionRate rate = new RejectionRate(Duration.ofSeconds(10), 0.25);
+        for (int second = 0; second < 10; second++) {
+            record(rate, second, 9, 1);
+        }
+        assertFalse(rate.sustained(9 * SECOND));
+    }
+
+    @Test
+    public void rejectsInvalidRatios() {
+        assertThrows(IllegalArgumentException.class, () -> new RejectionRate(Duration.ofSeconds(10), 0));
+        assertThrows(IllegalArgumentException.class, () -> new RejectionRate(Duration.ofSeconds(10), 1.5));
+    }
+
+    private static void record(RejectionRate rate, int second, int accepted, int rejected) {
+        for (int i = 0; i < accepted; i++) {
+            rate.record(false, second * SECOND);
+        }
+        for (int i = 0; i < rejected; i++) {
+            rate.record(true, second * SECOND);
+        }
+    }
+}
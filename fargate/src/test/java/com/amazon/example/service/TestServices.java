@@ -0,0 +1,56 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.time.Duration;
+
+/**
+ * Wires {@link UserService} by hand with the defaults from {@code application.properties}, for tests that replace
+ * DynamoDB with a stub and do not start Quarkus. The cache is disabled, so every read reaches the stub.
+ */
+final class TestServices {
+
+    private TestServices() {
+    }
+
+    static UserService userService(DynamoDbClient dynamoDB) {
+        return userService(dynamoDB, 1);
+    }
+
+    /**
+     * @param scanSegments parallel scan segments, each with its own executor thread
+     */
+    static UserService userService(DynamoDbClient dynamoDB, int scanSegments) {
+        UserCache cache = new UserCache();
+        cache.enabled = false;
+        cache.maxEntries = 10000;
+        cache.ttl = Duration.ofSeconds(30);
+        cache.negativeTtl = Duration.ofSeconds(5);
+        cache.init();
+
+        UserService service = new UserService();
+        service.dynamoDB = dynamoDB;
+        service.cache = cache;
+        service.scanSegments = scanSegments;
+        service.scanPageSize = 1000;
+        service.executorThreads = scanSegments;
+        service.batchMaxAttempts = 5;
+        service.init();
+        return service;
+    }
+}
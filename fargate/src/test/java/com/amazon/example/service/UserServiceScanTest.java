@@ -0,0 +1,132 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class UserServiceScanTest {
+
+    private final ScanningDynamoDbClient dynamoDB = new ScanningDynamoDbClient();
+    private UserService service;
+
+    @AfterEach
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    public void stopsEverySegmentBeforeRethrowingAFailure() throws InterruptedException {
+        service = TestServices.userService(dynamoDB, 3);
+        dynamoDB.endless = true;
+        dynamoDB.failingSegment = 0;
+
+        AtomicInteger consuming = new AtomicInteger();
+        IllegalStateException exc = assertThrows(IllegalStateException.class, () -> service.forEachPage(users -> {
+            consuming.incrementAndGet();
+            sleep(20);
+            consuming.decrementAndGet();
+        }));
+        assertEquals("segment 0 failed", exc.getMessage());
+
+        // the other segments were in the middle of a page, they must have stopped by the time forEachPage threw
+        int scans = dynamoDB.scans.get();
+        assertEquals(0, consuming.get());
+        Thread.sleep(200);
+        assertEquals(scans, dynamoDB.scans.get());
+        assertEquals(0, consuming.get());
+    }
+
+    @Test
+    public void scansWithTheConfiguredPageSize() {
+        for (int segments : new int[]{1, 3}) {
+            service = TestServices.userService(dynamoDB, segments);
+            service.scanPageSize = 50;
+            dynamoDB.limits.clear();
+
+            service.forEachPage(users -> {
+            });
+
+            assertEquals(Set.of(50), dynamoDB.limits, segments + " segments");
+            service.shutdown();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class ScanningDynamoDbClient implements DynamoDbClient {
+
+        final AtomicInteger scans = new AtomicInteger();
+        final Set<Integer> limits = ConcurrentHashMap.newKeySet();
+        // the failing segment waits until the others are in the middle of their scans
+        final CountDownLatch othersScanning = new CountDownLatch(2);
+        volatile boolean endless;
+        volatile Integer failingSegment;
+
+        @Override
+        public ScanResponse scan(ScanRequest request) {
+            limits.add(request.limit());
+            int segment = request.segment() != null ? request.segment() : 0;
+            if (failingSegment != null && failingSegment == segment) {
+                try {
+                    othersScanning.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException exc) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("segment " + segment + " failed");
+            }
+
+            othersScanning.countDown();
+            sleep(20);
+            scans.incrementAndGet();
+            Map<String, AttributeValue> key = Map.of(AbstractService.USER_ID_COL, AttributeValue.builder().s("id-" + segment).build());
+            return ScanResponse.builder()
+                    .items(List.of(key))
+                    .lastEvaluatedKey(endless ? key : Map.of())
+                    .build();
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import com.amazon.example.pojo.User;
+import com.amazon.example.pojo.UserPage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs many concurrent identical reads against a DynamoDB client that blocks until every caller has arrived, and
+ * checks that only one call reaches DynamoDB.
+ */
+public class UserServiceSingleFlightTest {
+
+    private static final int CALLERS = 32;
+
+    private final BlockingDynamoDbClient dynamoDB = new BlockingDynamoDbClient();
+    private final ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+    private UserService service;
+
+    @BeforeEach
+    public void setUp() {
+        service = TestServices.userService(dynamoDB);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        dynamoDB.release.countDown();
+        callers.shutdownNow();
+        service.shutdown();
+    }
+
+    @Test
+    public void concurrentGetsOfTheSameUserIssueOneGetItem() throws Exception {
+        List<Future<User>> results = submit(() -> service.get("hot"), service.userReads::coalesced);
+
+        for (Future<User> result : results) {
+            assertEquals("hot", result.get(5, TimeUnit.SECONDS).getUserId());
+        }
+        assertEquals(1, dynamoDB.getItemCalls.get());
+        assertEquals(1, service.userReads.issued());
+        assertEquals(CALLERS - 1, service.userReads.coalesced());
+    }
+
+    @Test
+    public void concurrentPageReadsIssueOneScan() throws Exception {
+        List<Future<UserPage>> results = submit(() -> service.findPage(10, null), service.pageReads::coalesced);
+
+        for (Future<UserPage> result : results) {
+            assertEquals(1, result.get(5, TimeUnit.SECONDS).getUsers().size());
+        }
+        assertEquals(1, dynamoDB.scanCalls.get());
+    }
+
+    @Test
+    public void readsAfterAWriteDoNotJoinAnEarlierRead() throws Exception {
+        Future<User> before = callers.submit(() -> service.get("hot"));
+        assertTrue(dynamoDB.entered.await(5, TimeUnit.SECONDS));
+
+        service.cache.invalidate("hot");
+        Future<User> after = callers.submit(() -> service.get("hot"));
+        awaitCount(dynamoDB.getItemCalls::get, 2);
+        dynamoDB.release.countDown();
+
+        before.get(5, TimeUnit.SECONDS);
+        after.get(5, TimeUnit.SECONDS);
+        assertEquals(2, dynamoDB.getItemCalls.get());
+        assertEquals(0, service.userReads.coalesced());
+    }
+
+    /**
+     * Starts {@link #CALLERS} concurrent calls and lets the DynamoDB call complete once all but the first have been
+     * coalesced into it.
+     */
+    private <T> List<Future<T>> submit(Callable<T> call, LongSupplier coalesced) throws InterruptedException {
+        List<Future<T>> results = new ArrayList<>(CALLERS);
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(callers.submit(call));
+        }
+
+        assertTrue(dynamoDB.entered.await(5, TimeUnit.SECONDS));
+        awaitCount(coalesced, CALLERS - 1);
+        dynamoDB.release.countDown();
+        return results;
+    }
+
+    private static void awaitCount(LongSupplier count, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count.getAsLong() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(expected, count.getAsLong());
+    }
+
+    /**
+     * Counts the calls and holds each of them until {@link #release} is opened.
+     */
+    private static final class BlockingDynamoDbClient implements DynamoDbClient {
+
+        final AtomicInteger getItemCalls = new AtomicInteger();
+        final AtomicInteger scanCalls = new AtomicInteger();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public GetItemResponse getItem(GetItemRequest request) {
+            getItemCalls.incrementAndGet();
+            block();
+            User user = new User(request.key().get(AbstractService.USER_ID_COL).s(), "hot", "Hot", "User", 42);
+            return GetItemResponse.builder().item(UserCodec.toItem(user)).build();
+        }
+
+        @Override
+        public ScanResponse scan(ScanRequest request) {
+            scanCalls.incrementAndGet();
+            block();
+            User user = new User("id-1", "user1", "First", "Last", 42);
+            return ScanResponse.builder().items(List.of(UserCodec.toItem(user))).count(1).build();
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private void block() {
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException exc) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import com.amazon.example.pojo.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsResponse;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * PUT and PATCH outcomes of {@link UserService#update(String, User, long, boolean)} against a stub that either
+ * applies the update or fails its condition.
+ */
+public class UserServiceUpdateTest {
+
+    private final StubDynamoDbClient dynamoDB = new StubDynamoDbClient();
+    private UserService service;
+
+    @BeforeEach
+    public void setUp() {
+        service = TestServices.userService(dynamoDB);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    public void patchAtCurrentVersionReturnsNextVersion() {
+        dynamoDB.stored = stored(1);
+
+        User updated = service.update("id-1", lastName("Dough"), 1, false);
+
+        assertEquals(2L, updated.getVersion());
+    }
+
+    @Test
+    public void patchWithOutdatedVersionConflicts() {
+        dynamoDB.stored = stored(2);
+        dynamoDB.failConditions = true;
+
+        assertThrows(ConflictException.class, () -> service.update("id-1", lastName("Dough"), 1, false));
+    }
+
+    @Test
+    public void failedConditionAtMatchingVersionConflicts() {
+        // e.g. the user was deleted and created again between the update and the re-read
+        dynamoDB.stored = stored(1);
+        dynamoDB.failConditions = true;
+
+        assertThrows(ConflictException.class, () -> service.update("id-1", lastName("Dough"), 1, false));
+    }
+
+    @Test
+    public void patchOfMissingUserReturnsEmptyUser() {
+        dynamoDB.failConditions = true;
+
+        assertNull(service.update("id-1", lastName("Dough"), 1, false).getUserId());
+    }
+
+    @Test
+    public void putWithTakenUserNameConflicts() {
+        dynamoDB.stored = stored(1);
+        dynamoDB.failConditions = true;
+        User changes = new User(null, "taken", "John", "Doe", 42);
+
+        assertThrows(ConflictException.class, () -> service.update("id-1", changes, 1, true));
+    }
+
+    @Test
+    public void putWithoutUserNameIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> service.update("id-1", lastName("Dough"), 1, true));
+    }
+
+    private static User lastName(String lastName) {
+        User changes = new User();
+        changes.setLastName(lastName);
+        return changes;
+    }
+
+    private static Map<String, AttributeValue> stored(long version) {
+        User user = new User("id-1", "jdoe", "John", "Doe", 42);
+        user.setVersion(version);
+        return UserCodec.toItem(user);
+    }
+
+    private static final class StubDynamoDbClient implements DynamoDbClient {
+
+        Map<String, AttributeValue> stored;
+        boolean failConditions;
+
+        @Override
+        public GetItemResponse getItem(GetItemRequest request) {
+            return GetItemResponse.builder().item(stored).build();
+        }
+
+        @Override
+        public UpdateItemResponse updateItem(UpdateItemRequest request) {
+            if (failConditions) {
+                throw ConditionalCheckFailedException.builder().message("The conditional request failed").build();
+            }
+            User user = User.from(stored);
+            user.setVersion(user.getVersion() + 1);
+            return UpdateItemResponse.builder().attributes(UserCodec.toItem(user)).build();
+        }
+
+        @Override
+        public TransactWriteItemsResponse transactWriteItems(TransactWriteItemsRequest request) {
+            if (failConditions) {
+                throw TransactionCanceledException.builder()
+                        .cancellationReasons(CancellationReason.builder().code("None").build(),
+                                CancellationReason.builder().code("ConditionalCheckFailed").build())
+                        .build();
+            }
+            return TransactWriteItemsResponse.builder().build();
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
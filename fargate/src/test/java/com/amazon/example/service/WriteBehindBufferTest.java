@@ -0,0 +1,190 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import com.amazon.example.pojo.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WriteBehindBufferTest {
+
+    private final RecordingDynamoDbClient dynamoDB = new RecordingDynamoDbClient();
+    private UserService service;
+    private WriteBehindBuffer buffer;
+
+    @BeforeEach
+    public void setUp() {
+        service = TestServices.userService(dynamoDB);
+
+        buffer = new WriteBehindBuffer();
+        buffer.service = service;
+        buffer.enabled = true;
+        buffer.capacity = 4;
+        buffer.batchSize = 4;
+        buffer.maxDelay = Duration.ofSeconds(30);
+        buffer.drainTimeout = Duration.ofSeconds(5);
+        buffer.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        dynamoDB.release.countDown();
+        buffer.drain();
+        service.shutdown();
+    }
+
+    @Test
+    public void writesFullBatchesAtOnce() throws Exception {
+        dynamoDB.release.countDown();
+        List<CompletableFuture<User>> results = submit(4);
+
+        for (CompletableFuture<User> result : results) {
+            assertEquals(1L, result.get(5, TimeUnit.SECONDS).getVersion());
+        }
+        assertEquals(List.of(4), dynamoDB.batchSizes);
+    }
+
+    @Test
+    public void completesOnlyOnceWrittenAndRejectsWhenFull() throws Exception {
+        List<CompletableFuture<User>> results = submit(4);
+        assertTrue(dynamoDB.entered.await(5, TimeUnit.SECONDS));
+        results.addAll(submit(4));
+
+        assertThrows(WriteBufferFullException.class, () -> buffer.submit(user(9)));
+        assertFalse(results.get(0).isDone());
+
+        dynamoDB.release.countDown();
+        for (CompletableFuture<User> result : results) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(List.of(4, 4), dynamoDB.batchSizes);
+    }
+
+    @Test
+    public void drainsQueuedUsersOnShutdown() throws Exception {
+        dynamoDB.release.countDown();
+        List<CompletableFuture<User>> results = submit(2);
+
+        // the batch is not full and max-delay is far away, only the shutdown flushes it
+        buffer.drain();
+
+        for (CompletableFuture<User> result : results) {
+            assertTrue(result.isDone());
+            result.get();
+        }
+        assertEquals(List.of(2), dynamoDB.batchSizes);
+        assertThrows(WriteBufferFullException.class, () -> buffer.submit(user(9)));
+    }
+
+    @Test
+    public void failsUsersLeftQueuedWhenDrainTimesOut() throws Exception {
+        buffer.drainTimeout = Duration.ofMillis(100);
+        List<CompletableFuture<User>> written = submit(4);
+        assertTrue(dynamoDB.entered.await(5, TimeUnit.SECONDS));
+        List<CompletableFuture<User>> queued = submit(4);
+
+        // the flusher is stuck in BatchWriteItem, so the queued users cannot be written in time
+        buffer.drain();
+
+        for (CompletableFuture<User> result : queued) {
+            ExecutionException exc = assertThrows(ExecutionException.class, () -> result.get(1, TimeUnit.SECONDS));
+            assertTrue(exc.getCause() instanceof WriteBufferFullException);
+        }
+        dynamoDB.release.countDown();
+        for (CompletableFuture<User> result : written) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void reportsTakenUserNamesAsConflicts() throws Exception {
+        dynamoDB.release.countDown();
+        List<CompletableFuture<User>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(buffer.submit(new User("id-" + i, i < 2 ? "jdoe" : null, "First", "Last", 42)).toCompletableFuture());
+        }
+
+        assertEquals("jdoe", results.get(0).get(5, TimeUnit.SECONDS).getUserName());
+        ExecutionException exc = assertThrows(ExecutionException.class, () -> results.get(1).get(5, TimeUnit.SECONDS));
+        assertTrue(exc.getCause() instanceof ConflictException);
+        results.get(3).get(5, TimeUnit.SECONDS);
+    }
+
+    private List<CompletableFuture<User>> submit(int count) {
+        List<CompletableFuture<User>> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            results.add(buffer.submit(user(i)).toCompletableFuture());
+        }
+        return results;
+    }
+
+    private static User user(int i) {
+        return new User("id-" + i, null, "First", "Last", 42);
+    }
+
+    private static final class RecordingDynamoDbClient implements DynamoDbClient {
+
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public BatchWriteItemResponse batchWriteItem(BatchWriteItemRequest request) {
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException exc) {
+                Thread.currentThread().interrupt();
+            }
+            batchSizes.add(request.requestItems().values().stream().mapToInt(List::size).sum());
+            return BatchWriteItemResponse.builder().build();
+        }
+
+        @Override
+        public BatchGetItemResponse batchGetItem(BatchGetItemRequest request) {
+            return BatchGetItemResponse.builder().build();
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
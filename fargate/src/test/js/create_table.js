@@ -27,6 +27,28 @@ AttributeDefinitions: [
         AttributeName: 'userId',
         AttributeType: 'S',
     },
+    {
+        AttributeName: 'userName',
+        AttributeType: 'S',
+    },
+],
+GlobalSecondaryIndexes: [
+    {
+        IndexName: 'userName-index',
+        KeySchema: [
+            {
+                AttributeName: 'userName',
+                KeyType: 'HASH',
+            },
+        ],
+        Projection: {
+            ProjectionType: 'ALL',
+        },
+        ProvisionedThroughput: {
+            ReadCapacityUnits: 1,
+            WriteCapacityUnits: 1,
+        },
+    },
 ],
 ProvisionedThroughput: {
     ReadCapacityUnits: 1,
@@ -38,4 +60,30 @@ dynamodb.createTable(params, function(err, data) {
     if (err) ppJson(err); // an error occurred
     else ppJson(data); // successful response
 
-});
\ No newline at end of file
+});
+
+var userNamesParams = {
+TableName: 'UserNames',
+KeySchema: [
+    {
+        AttributeName: 'userName',
+        KeyType: 'HASH',
+    },
+],
+AttributeDefinitions: [
+    {
+        AttributeName: 'userName',
+        AttributeType: 'S',
+    },
+],
+ProvisionedThroughput: {
+    ReadCapacityUnits: 1,
+    WriteCapacityUnits: 1,
+},
+};
+
+dynamodb.createTable(userNamesParams, function(err, data) {
+    if (err) ppJson(err); // an error occurred
+    else ppJson(data); // successful response
+
+});
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example;
+
+import com.amazon.example.service.UserCache;
+import io.quarkus.runtime.StartupEvent;
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+/**
+ * Warms up {@link ProcessingLambda} during the init phase, which runs before the first invocation is billed and, with
+ * SnapStart, before the snapshot is taken. Registered as a CRaC resource so the snapshot holds no cached data and
+ * restored instances open a fresh DynamoDB connection instead of failing on the one captured in the snapshot.
+ */
+@ApplicationScoped
+public class Priming implements Resource {
+
+    private static final Logger LOGGER = Logger.getLogger(Priming.class);
+
+    @ConfigProperty(name = "users.priming.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @Inject
+    ProcessingLambda handler;
+
+    @Inject
+    UserCache userCache;
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+
+        prime();
+        Core.getGlobalContext().register(this);
+    }
+
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) {
+        userCache.invalidate(ProcessingLambda.PRIMING_USER_ID);
+    }
+
+    @Override
+    public void afterRestore(Context<? extends Resource> context) {
+        prime();
+    }
+
+    private void prime() {
+        long start = System.nanoTime();
+        try {
+            handler.prime();
+        } catch (Exception exc) {
+            // priming is best effort, the first request pays the remaining cost
+            LOGGER.warn("Priming failed", exc);
+        }
+        userCache.invalidate(ProcessingLambda.PRIMING_USER_ID);
+        LOGGER.infof("Primed in %d ms", (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -15,111 +15,348 @@
  */
 package com.amazon.example;
 
+import com.amazon.example.pojo.BatchItemResult;
 import com.amazon.example.pojo.User;
+import com.amazon.example.pojo.UserPage;
+import com.amazon.example.pojo.UserStats;
+import com.amazon.example.service.ConflictException;
+import com.amazon.example.service.EntityTags;
+import com.amazon.example.service.InvocationMetrics;
+import com.amazon.example.service.PayloadSampler;
+import com.amazon.example.service.UserCache;
+import com.amazon.example.service.UserQuery;
 import com.amazon.example.service.UserService;
+import com.amazon.example.service.UserStatsService;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
+import org.jboss.logging.MDC;
 
+import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 @Named("processing")
+@Singleton
 public class ProcessingLambda implements RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> {
 
     private static final Logger LOGGER = Logger.getLogger(ProcessingLambda.class);
 
+    private static final TypeReference<List<User>> USER_LIST = new TypeReference<>() {
+    };
+    private static final TypeReference<List<String>> ID_LIST = new TypeReference<>() {
+    };
+
+    // the body is compressed depending on Accept-Encoding, see ResponseEncoding
+    private static final Map<String, String> JSON_HEADERS = Map.of("Content-Type", "application/json", "Vary", "Accept-Encoding");
+
+    static final String PRIMING_USER_ID = "00000000-0000-0000-0000-000000000000";
+
     private ObjectMapper mapper = new ObjectMapper();
 
+    private final Router router = new Router()
+            .add("GET", "/users", this::getUsers)
+            .add("GET", "/users/stats", this::getStats)
+            .add("GET", "/users/{userId}", this::getUser)
+            .add("POST", "/users", this::createUser)
+            .add("POST", "/users/batch", this::createUsers)
+            .add("POST", "/users/batch/delete", this::deleteUsers)
+            .add("PUT", "/users/{userId}", request -> updateUser(request, true))
+            .add("PATCH", "/users/{userId}", request -> updateUser(request, false))
+            .add("DELETE", "/users/{userId}", this::deleteUser);
+
     @Inject
     UserService userService;
 
+    @Inject
+    UserCache userCache;
+
+    @Inject
+    UserStatsService statsService;
+
+    @ConfigProperty(name = "users.logging.payload-sampling")
+    Optional<List<String>> payloadSampling;
+
+    // samples nothing until configured, e.g. when constructed directly in benchmarks
+    private PayloadSampler payloadSampler = new PayloadSampler(List.of());
+
+    @PostConstruct
+    void init() {
+        payloadSampler = new PayloadSampler(payloadSampling.orElse(List.of()));
+    }
+
     @Override
     public APIGatewayProxyResponseEvent handleRequest(APIGatewayProxyRequestEvent request, Context context) {
 
+        long start = System.nanoTime();
+        if (context != null) {
+            MDC.put("requestId", context.getAwsRequestId());
+        }
+
+        APIGatewayProxyResponseEvent response;
+        Router.Handler handler = router.resolve(request);
+        String route = request.getResource() != null ? request.getHttpMethod() + " " + request.getResource() : "unmatched";
+        if (handler == null) {
+            response = status(router.allows(request) ? 405 : 404);
+        } else {
+            try {
+                response = handler.handle(request);
+            } catch (IllegalArgumentException | JsonProcessingException exc) {
+                // also covers NumberFormatException for a non-numeric limit
+                LOGGER.infof("%s rejected: %s", route, exc.getMessage());
+                response = status(400);
+            } catch (ConflictException exc) {
+                LOGGER.infof("%s conflicted: %s", route, exc.getMessage());
+                response = status(409).withBody(exc.getMessage());
+            } catch (Exception exc) {
+                LOGGER.errorf(exc, "%s failed", route);
+                response = status(500);
+            }
+        }
+
+        response = notModified(request, response);
+        String body = response.getBody();
+        response = ResponseEncoding.encode(response, ResponseEncoding.negotiate(ResponseEncoding.header(request, "Accept-Encoding")));
+
+        double latencyMillis = (System.nanoTime() - start) / 1_000_000.0;
+        MDC.put("latencyMs", latencyMillis);
+        if (payloadSampler.sample(route)) {
+            LOGGER.infof("%s payload: request=%s response=%s", route, ResponseEncoding.body(request), body);
+        }
+        LOGGER.infof("%s %d", route, response.getStatusCode());
+        LOGGER.debugf("Cache: %s", userCache.stats());
+        MDC.remove("latencyMs");
+        MDC.remove("requestId");
+
+        emitMetrics(route, response, context, latencyMillis);
+
+        return response;
+    }
+
+    /**
+     * Looks up a non-existent user through the whole handler and round-trips a user through Jackson, so that
+     * class loading, the DynamoDB connection and the serializers are warm before the first real request.
+     */
+    void prime() throws JsonProcessingException {
+        handleRequest(new APIGatewayProxyRequestEvent()
+                .withHttpMethod("GET")
+                .withResource("/users/{userId}")
+                .withPath("/users/" + PRIMING_USER_ID)
+                .withPathParameters(Map.of("userId", PRIMING_USER_ID)), null);
+
+        User user = new User(PRIMING_USER_ID, "priming", "Priming", "Priming", 0);
+        mapper.readValue(mapper.writeValueAsString(List.of(user)), USER_LIST);
+        mapper.writeValueAsString(new UserPage(List.of(user), null, null));
+    }
+
+    /**
+     * Writes the metrics of the invocation as one EMF document to stdout, where CloudWatch Logs picks them up.
+     * Invocations without a context (priming, benchmarks) are not reported.
+     */
+    private void emitMetrics(String route, APIGatewayProxyResponseEvent response, Context context, double latencyMillis) {
+        if (context == null) {
+            InvocationMetrics.current().reset();
+            return;
+        }
+
+        try {
+            System.out.println(mapper.writeValueAsString(
+                    InvocationMetrics.current().flush(route, response.getStatusCode(), latencyMillis)));
+        } catch (JsonProcessingException exc) {
+            LOGGER.error(exc);
+        }
+    }
+
+    private APIGatewayProxyResponseEvent getUsers(APIGatewayProxyRequestEvent request) throws JsonProcessingException {
         Map<String, String> query = request.getQueryStringParameters();
+        String userId = query != null ? query.get("userId") : null;
+        String ids = query != null ? query.get("ids") : null;
+        String userName = query != null ? query.get("userName") : null;
+        UserQuery userQuery = userQuery(query);
+
+        if (userId != null && !userId.isEmpty()) {
+            // legacy form of GET /users/{userId}
+            return user(userId, userQuery);
+        }
+
+        if (userName != null) {
+            if (userName.isBlank()) {
+                throw new IllegalArgumentException("userName must not be blank");
+            }
+            List<User> users = userService.findByUserName(userName, userQuery);
+            LOGGER.debugf("GET: %d users by userName", users.size());
+            return json(200, users);
+        }
+
+        if (ids != null) {
+            List<User> users = userService.getAll(validateBatch(parseIds(ids)), userQuery);
+            LOGGER.debugf("GET: %d users by id", users.size());
+            return json(200, users);
+        }
+
+        Integer limit = query != null && query.get("limit") != null ? Integer.valueOf(query.get("limit")) : null;
+        if (limit != null && limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+
+        String cursor = query != null ? query.get("cursor") : null;
+        UserPage page = userService.findPage(limit, cursor, userQuery);
+        LOGGER.debugf("GET: %d users", page.getUsers().size());
+        return json(200, page);
+    }
+
+    private APIGatewayProxyResponseEvent getUser(APIGatewayProxyRequestEvent request) throws JsonProcessingException {
+        return user(request.getPathParameters().get("userId"), userQuery(request.getQueryStringParameters()));
+    }
 
-        LOGGER.info(String.format("[%s] Processed data", request));
-
-        User user;
-        String result = "";
-        List<User> userList;
-
-        String httpMethod = request.getHttpMethod();
-
-        Map<String, String> pathParameters = request.getPathParameters();
-
-        switch (httpMethod) {
-
-            case "GET":
-                Map<String, String> queryStringParameters = request.getQueryStringParameters();
-
-                String userId = null;
-
-                if (pathParameters != null)
-                    userId = pathParameters.get("userId");
-                else if (queryStringParameters != null)
-                    userId = queryStringParameters.get("userId");
-
-                if (userId == null || userId.length() == 0) {
-                    LOGGER.info("Getting all users");
-                    userList = userService.findAll();
-                    LOGGER.info("GET: " + userList);
-                    try {
-                        result = mapper.writeValueAsString(userList);
-                    } catch (JsonProcessingException exc) {
-                        LOGGER.error(exc);
-                    }
-                } else {
-                    user = userService.get(userId);
-                    LOGGER.info("GET: " + user);
-
-                    if (user.getUserId() == null)
-                        result = "";
-                    else {
-                        try {
-                            result = mapper.writeValueAsString(user);
-                        } catch (JsonProcessingException exc) {
-                            LOGGER.error(exc);
-                        }
-                    }
-                }
-                break;
-            case "POST":
-                String body = request.getBody();
-                try {
-                    User tmpUser = mapper.readValue(body, User.class);
-                    tmpUser.setUserId(createUserId());
-
-                    LOGGER.info("POST: " + tmpUser);
-                    String tmpId = userService.add(tmpUser);
-
-                    result = tmpId;
-                }
-                catch (JsonProcessingException exc) {
-                    LOGGER.error(exc);
-                }
-                break;
-            case "DELETE":
-                if (pathParameters != null) {
-                    String id = pathParameters.get("userId");
-                    String tmpId = userService.delete(id);
-
-                    LOGGER.info("DELETE: " + tmpId);
-
-                    result = tmpId;
-                }
-                break;
-        }
-
-        return new APIGatewayProxyResponseEvent().withBody(result).withStatusCode(200);
+    /**
+     * Counters maintained by {@link UserStatsLambda}, read with a single {@code GetItem}.
+     */
+    private APIGatewayProxyResponseEvent getStats(APIGatewayProxyRequestEvent request) throws JsonProcessingException {
+        UserStats stats = statsService.get();
+        LOGGER.debugf("GET /users/stats: %d users", stats.getUserCount());
+        return json(200, stats);
+    }
+
+    private APIGatewayProxyResponseEvent createUser(APIGatewayProxyRequestEvent request) throws JsonProcessingException {
+        User user = mapper.readValue(ResponseEncoding.body(request), User.class);
+        if (user == null) {
+            throw new IllegalArgumentException("Missing user");
+        }
+        user.setUserId(createUserId());
+
+        LOGGER.debugf("POST: %s", user.getUserId());
+        userService.add(user);
+
+        return json(201, user);
+    }
+
+    private APIGatewayProxyResponseEvent createUsers(APIGatewayProxyRequestEvent request) throws JsonProcessingException {
+        List<User> users = validateBatch(mapper.readValue(ResponseEncoding.body(request), USER_LIST));
+        for (User user : users) {
+            user.setUserId(createUserId());
+        }
+
+        List<BatchItemResult> results = userService.addAll(users);
+        LOGGER.debugf("POST /users/batch: %d items", results.size());
+        return json(200, results);
+    }
+
+    private APIGatewayProxyResponseEvent deleteUsers(APIGatewayProxyRequestEvent request) throws JsonProcessingException {
+        List<BatchItemResult> results = userService.deleteAll(validateBatch(mapper.readValue(ResponseEncoding.body(request), ID_LIST)));
+        LOGGER.debugf("POST /users/batch/delete: %d items", results.size());
+        return json(200, results);
+    }
+
+    /**
+     * PUT replaces all mutable attributes, PATCH only those present in the body. The body must carry the
+     * {@code version} it is based on; {@code 409} means the user has changed since.
+     */
+    private APIGatewayProxyResponseEvent updateUser(APIGatewayProxyRequestEvent request, boolean replace) throws JsonProcessingException {
+        User changes = mapper.readValue(ResponseEncoding.body(request), User.class);
+        if (changes == null || changes.getVersion() == null) {
+            throw new IllegalArgumentException("version is required");
+        }
+
+        String userId = request.getPathParameters().get("userId");
+        LOGGER.debugf("%s: %s", request.getHttpMethod(), userId);
+        User updated = userService.update(userId, changes, changes.getVersion(), replace);
+
+        return updated.getUserId() != null ? json(200, updated) : status(404);
+    }
+
+    private APIGatewayProxyResponseEvent deleteUser(APIGatewayProxyRequestEvent request) {
+        User deleted = userService.delete(request.getPathParameters().get("userId"));
+        LOGGER.debugf("DELETE: %s", deleted.getUserId());
+
+        return status(deleted.getUserId() != null ? 204 : 404);
+    }
+
+    private APIGatewayProxyResponseEvent user(String userId, UserQuery userQuery) throws JsonProcessingException {
+        User user = userService.get(userId, userQuery);
+        LOGGER.debugf("GET: %s", user.getUserId());
+
+        return user.getUserId() != null ? json(200, user) : status(404);
+    }
+
+    /**
+     * Successful user reads are tagged with a weak {@code ETag}, see {@link EntityTags}.
+     */
+    private APIGatewayProxyResponseEvent json(int statusCode, Object body) throws JsonProcessingException {
+        Map<String, String> headers = JSON_HEADERS;
+        String tag = statusCode == 200 ? EntityTags.of(body) : null;
+        if (tag != null) {
+            headers = new HashMap<>(JSON_HEADERS);
+            headers.put("ETag", "W/\"" + tag + "\"");
+        }
+
+        return new APIGatewayProxyResponseEvent()
+                .withStatusCode(statusCode)
+                .withHeaders(headers)
+                .withBody(mapper.writeValueAsString(body));
+    }
+
+    /**
+     * @return {@code 304 Not Modified} if the client already has the tagged representation of a GET
+     */
+    private static APIGatewayProxyResponseEvent notModified(APIGatewayProxyRequestEvent request, APIGatewayProxyResponseEvent response) {
+        String etag = response.getHeaders() != null ? response.getHeaders().get("ETag") : null;
+        if (etag == null || !"GET".equals(request.getHttpMethod())
+                || !EntityTags.matches(ResponseEncoding.header(request, "If-None-Match"), etag.substring(3, etag.length() - 1))) {
+            return response;
+        }
+        return status(304).withHeaders(Map.of("ETag", etag, "Vary", "Accept-Encoding"));
+    }
+
+    private static APIGatewayProxyResponseEvent status(int statusCode) {
+        return new APIGatewayProxyResponseEvent().withStatusCode(statusCode);
+    }
+
+    /**
+     * {@code fields} selects the returned attributes; {@code minAge}, {@code maxAge} and {@code lastNamePrefix}
+     * filter the page and the userName lookup.
+     */
+    private static UserQuery userQuery(Map<String, String> query) {
+        if (query == null) {
+            return UserQuery.ALL;
+        }
+
+        String minAge = query.get("minAge");
+        String maxAge = query.get("maxAge");
+        return UserQuery.of(query.get("fields"),
+                minAge != null ? Integer.valueOf(minAge) : null,
+                maxAge != null ? Integer.valueOf(maxAge) : null,
+                query.get("lastNamePrefix"));
+    }
+
+    private static List<String> parseIds(String ids) {
+        List<String> userIds = new ArrayList<>();
+        for (String id : ids.split(",")) {
+            if (!id.isBlank()) {
+                userIds.add(id.trim());
+            }
+        }
+        return userIds;
+    }
+
+    private static <T> List<T> validateBatch(List<T> items) {
+        if (items == null || items.isEmpty() || items.size() > UserService.MAX_BATCH_SIZE || items.contains(null)) {
+            throw new IllegalArgumentException("A batch must contain between 1 and " + UserService.MAX_BATCH_SIZE + " non-null items");
+        }
+        return items;
     }
 
     private String createUserId() {
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content negotiation for the proxy integration: request bodies that API Gateway passes on base64 encoded are
+ * decoded, and response bodies are compressed with gzip or deflate if the client accepts it. API Gateway only turns a
+ * base64 body back into binary because the API treats all media types as binary ({@code BinaryMediaTypes} in the SAM
+ * templates). Brotli is not offered, the JDK has no encoder for it.
+ */
+final class ResponseEncoding {
+
+    // Below this size the compressed body plus base64 overhead is rarely worth the CPU time
+    static final int MIN_COMPRESSED_SIZE = 1024;
+
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+
+    private ResponseEncoding() {
+    }
+
+    static String body(APIGatewayProxyRequestEvent request) {
+        if (Boolean.TRUE.equals(request.getIsBase64Encoded()) && request.getBody() != null) {
+            return new String(Base64.getDecoder().decode(request.getBody()), StandardCharsets.UTF_8);
+        }
+        return request.getBody();
+    }
+
+    /**
+     * @return the header value, looked up case-insensitively as HTTP/2 clients send lower case names
+     */
+    static String header(APIGatewayProxyRequestEvent request, String name) {
+        Map<String, String> headers = request.getHeaders();
+        if (headers == null) {
+            return null;
+        }
+
+        String value = headers.get(name);
+        if (value != null) {
+            return value;
+        }
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (header.getKey().equalsIgnoreCase(name)) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return {@code gzip} or {@code deflate} in the client's order of preference, or {@code null} for identity
+     */
+    static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+
+        String best = null;
+        double bestQuality = 0;
+        for (String candidate : acceptEncoding.split(",")) {
+            String[] parts = candidate.split(";");
+            String coding = parts[0].trim().toLowerCase();
+            if (!coding.equals(GZIP) && !coding.equals(DEFLATE)) {
+                continue;
+            }
+
+            double quality = quality(parts);
+            if (quality > bestQuality) {
+                best = coding;
+                bestQuality = quality;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Compresses the body with {@code encoding} unless it is {@code null} or the body is small.
+     */
+    static APIGatewayProxyResponseEvent encode(APIGatewayProxyResponseEvent response, String encoding) {
+        String body = response.getBody();
+        if (encoding == null || body == null || body.length() < MIN_COMPRESSED_SIZE) {
+            return response;
+        }
+
+        Map<String, String> headers = response.getHeaders() != null ? new HashMap<>(response.getHeaders()) : new HashMap<>();
+        headers.put("Content-Encoding", encoding);
+        return response
+                .withHeaders(headers)
+                .withIsBase64Encoded(true)
+                .withBody(Base64.getEncoder().encodeToString(compress(body.getBytes(StandardCharsets.UTF_8), encoding)));
+    }
+
+    private static byte[] compress(byte[] body, String encoding) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 4);
+        try (OutputStream out = encoding.equals(GZIP) ? new GZIPOutputStream(bytes) : new DeflaterOutputStream(bytes)) {
+            out.write(body);
+        } catch (IOException exc) {
+            // cannot happen with an in-memory stream
+            throw new UncheckedIOException(exc);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException exc) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Route table for API Gateway proxy events, built once per container.
+ * <p>
+ * API Gateway passes the matched resource template (e.g. {@code /users/{userId}}) with every event, so routing is a
+ * single hash lookup on method and template. Events without a template, e.g. from direct invocations, fall back to
+ * matching the path against the precompiled templates.
+ */
+public class Router {
+
+    @FunctionalInterface
+    public interface Handler {
+        APIGatewayProxyResponseEvent handle(APIGatewayProxyRequestEvent request) throws Exception;
+    }
+
+    private static final Pattern PATH_PARAMETER = Pattern.compile("\\{([^/}]+)}");
+
+    private final Map<String, Handler> routes = new HashMap<>();
+    private final List<Template> templates = new ArrayList<>();
+
+    public Router add(String method, String template, Handler handler) {
+        routes.put(key(method, template), handler);
+        if (templates.stream().noneMatch(existing -> existing.template.equals(template))) {
+            templates.add(new Template(template));
+            // literal segments win over path parameters, as in API Gateway
+            templates.sort(Comparator.comparingInt(existing -> existing.names.size()));
+        }
+        return this;
+    }
+
+    /**
+     * @return the handler for the request, or {@code null} if no route matches
+     * @see #allows(APIGatewayProxyRequestEvent)
+     */
+    public Handler resolve(APIGatewayProxyRequestEvent request) {
+        if (request.getResource() != null) {
+            return routes.get(key(request.getHttpMethod(), request.getResource()));
+        }
+
+        Template template = match(request.getPath());
+        if (template == null) {
+            return null;
+        }
+        request.setResource(template.template);
+        request.setPathParameters(template.parameters(request.getPath()));
+        return routes.get(key(request.getHttpMethod(), template.template));
+    }
+
+    /**
+     * @return whether the request addresses a known resource, even if not with its method
+     */
+    public boolean allows(APIGatewayProxyRequestEvent request) {
+        String resource = request.getResource();
+        if (resource == null) {
+            Template template = match(request.getPath());
+            resource = template != null ? template.template : null;
+        }
+        if (resource == null) {
+            return false;
+        }
+        for (String key : routes.keySet()) {
+            if (key.endsWith(" " + resource)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Template match(String path) {
+        if (path == null) {
+            return null;
+        }
+        for (Template template : templates) {
+            if (template.pattern.matcher(path).matches()) {
+                return template;
+            }
+        }
+        return null;
+    }
+
+    private static String key(String method, String template) {
+        return method + ' ' + template;
+    }
+
+    private static final class Template {
+
+        private final String template;
+        private final Pattern pattern;
+        private final List<String> names = new ArrayList<>();
+
+        private Template(String template) {
+            this.template = template;
+
+            StringBuilder regex = new StringBuilder();
+            Matcher matcher = PATH_PARAMETER.matcher(template);
+            int last = 0;
+            while (matcher.find()) {
+                regex.append(Pattern.quote(template.substring(last, matcher.start()))).append("([^/]+)");
+                names.add(matcher.group(1));
+                last = matcher.end();
+            }
+            regex.append(Pattern.quote(template.substring(last)));
+            this.pattern = Pattern.compile(regex.toString());
+        }
+
+        private Map<String, String> parameters(String path) {
+            if (names.isEmpty()) {
+                return null;
+            }
+            Matcher matcher = pattern.matcher(path);
+            matcher.matches();
+            Map<String, String> parameters = new HashMap<>();
+            for (int i = 0; i < names.size(); i++) {
+                parameters.put(names.get(i), matcher.group(i + 1));
+            }
+            return parameters;
+        }
+    }
+}
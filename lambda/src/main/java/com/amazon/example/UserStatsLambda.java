@@ -0,0 +1,108 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example;
+
+import com.amazon.example.service.AbstractService;
+import com.amazon.example.service.UserStatsService;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.jboss.logging.Logger;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Consumes the stream of the Users table ({@code NEW_AND_OLD_IMAGES}) and keeps the counters of
+ * {@link UserStatsService} up to date. Inserts and removes change the user count and an age bucket, modifications
+ * move a user between buckets. The deltas of a batch are summed and written with one {@code UpdateItem}, so a failed
+ * batch is retried as a whole. Stream records are delivered at least once, so a batch that is retried after its
+ * update succeeded (e.g. on a timeout) is counted twice.
+ * <p>
+ * Deployed as a second function from the same package, selected with {@code QUARKUS_LAMBDA_HANDLER=stats}.
+ */
+@Named("stats")
+@Singleton
+public class UserStatsLambda implements RequestHandler<JsonNode, Void> {
+
+    private static final Logger LOGGER = Logger.getLogger(UserStatsLambda.class);
+
+    @Inject
+    UserStatsService statsService;
+
+    @Override
+    public Void handleRequest(JsonNode event, Context context) {
+        Map<String, Long> deltas = deltas(event);
+        LOGGER.debugf("%d records: %s", event.path("Records").size(), deltas);
+        statsService.add(deltas);
+        return null;
+    }
+
+    /**
+     * @return the change of every counter touched by the records, counters that did not change are left out
+     */
+    static Map<String, Long> deltas(JsonNode event) {
+        Map<String, Long> deltas = new HashMap<>();
+        for (JsonNode record : event.path("Records")) {
+            JsonNode images = record.path("dynamodb");
+            switch (record.path("eventName").asText()) {
+                case "INSERT":
+                    count(deltas, images.path("NewImage"), 1);
+                    break;
+                case "REMOVE":
+                    count(deltas, images.path("OldImage"), -1);
+                    break;
+                case "MODIFY":
+                    // the user count cancels out, only a changed age bucket remains
+                    if (images.has("OldImage") && images.has("NewImage")) {
+                        count(deltas, images.path("OldImage"), -1);
+                        count(deltas, images.path("NewImage"), 1);
+                    }
+                    break;
+                default:
+                    LOGGER.warnf("Skipped record with eventName %s", record.path("eventName").asText());
+            }
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+        return deltas;
+    }
+
+    private static void count(Map<String, Long> deltas, JsonNode image, long delta) {
+        deltas.merge(UserStatsService.USER_COUNT, delta, Long::sum);
+        deltas.merge(UserStatsService.ageCounter(age(image)), delta, Long::sum);
+    }
+
+    /**
+     * @return the age, or null if it is missing or not an integer; failing instead would block the shard, as the
+     * stream retries the batch until it succeeds
+     */
+    private static Integer age(JsonNode image) {
+        JsonNode age = image.path(AbstractService.USER_AGE_COL).path("N");
+        if (age.isMissingNode()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(age.asText());
+        } catch (NumberFormatException exc) {
+            LOGGER.warnf("Counted user %s with age %s as unknown",
+                    image.path(AbstractService.USER_ID_COL).path("S").asText(), age.asText());
+            return null;
+        }
+    }
+}
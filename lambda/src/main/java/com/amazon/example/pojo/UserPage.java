@@ -0,0 +1,64 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.pojo;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.util.List;
+
+/**
+ * One page of a user listing. {@code nextCursor} is {@code null} once the table has been read completely.
+ */
+@RegisterForReflection
+public class UserPage {
+
+    private List<User> users;
+    private String nextCursor;
+    private Double consumedCapacity;
+
+    public UserPage() {
+    }
+
+    public UserPage(List<User> users, String nextCursor, Double consumedCapacity) {
+        this.users = users;
+        this.nextCursor = nextCursor;
+        this.consumedCapacity = consumedCapacity;
+    }
+
+    public List<User> getUsers() {
+        return users;
+    }
+
+    public void setUsers(List<User> users) {
+        this.users = users;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public Double getConsumedCapacity() {
+        return consumedCapacity;
+    }
+
+    public void setConsumedCapacity(Double consumedCapacity) {
+        this.consumedCapacity = consumedCapacity;
+    }
+}
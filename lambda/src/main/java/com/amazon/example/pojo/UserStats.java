@@ -0,0 +1,54 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.pojo;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.util.Map;
+
+/**
+ * Number of users, in total and per age bucket ({@code "20-29"}, {@code "90+"}, {@code "unknown"}).
+ */
+@RegisterForReflection
+public class UserStats {
+
+    private long userCount;
+    private Map<String, Long> ageBuckets;
+
+    public UserStats() {
+    }
+
+    public UserStats(long userCount, Map<String, Long> ageBuckets) {
+        this.userCount = userCount;
+        this.ageBuckets = ageBuckets;
+    }
+
+    public long getUserCount() {
+        return userCount;
+    }
+
+    public void setUserCount(long userCount) {
+        this.userCount = userCount;
+    }
+
+    public Map<String, Long> getAgeBuckets() {
+        return ageBuckets;
+    }
+
+    public void setAgeBuckets(Map<String, Long> ageBuckets) {
+        this.ageBuckets = ageBuckets;
+    }
+}
@@ -16,57 +16,449 @@
 package com.amazon.example.service;
 
 import com.amazon.example.pojo.User;
+import com.amazon.example.pojo.UserPage;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 public abstract class AbstractService {
 
+    public final static String USERS_TABLE = "Users";
+    // Guard items that reserve a userName for one userId, written together with the user
+    public final static String USER_NAMES_TABLE = "UserNames";
+    public final static String USER_NAME_INDEX = "userName-index";
+    // Counters maintained from the stream of the Users table, see UserStatsService
+    public final static String USER_STATS_TABLE = "UserStats";
+    public final static String USER_STATS_ID_COL = "statsId";
+
     public final static String USER_USERNAME_COL = "userName";
     public final static String USER_FIRSTNAME_COL = "firstName";
     public final static String USER_LASTNAME_COL = "lastName";
     public final static String USER_AGE_COL = "age";
     public final static String USER_ID_COL = "userId";
+    public final static String USER_VERSION_COL = "version";
+
+    protected final static List<String> USER_COLUMNS =
+            List.of(USER_ID_COL, USER_USERNAME_COL, USER_FIRSTNAME_COL, USER_LASTNAME_COL, USER_AGE_COL, USER_VERSION_COL);
+
+    public final static int DEFAULT_PAGE_SIZE = 100;
+    public final static int MAX_PAGE_SIZE = 1000;
+
+    public final static int MAX_BATCH_SIZE = 1000;
+    public final static int BATCH_WRITE_CHUNK_SIZE = 25;
+    public final static int BATCH_GET_CHUNK_SIZE = 100;
+
+    private final static long BACKOFF_BASE_MILLIS = 50;
+    private final static long BACKOFF_MAX_MILLIS = 2000;
+
+    private final static String ALL_COLUMNS_PROJECTION = projectionExpression(USER_COLUMNS);
+    private final static Map<String, String> ALL_COLUMNS_NAMES = attributeNames(USER_COLUMNS);
 
     public String getTableName() {
-        return "Users";
+        return USERS_TABLE;
     }
 
     protected ScanRequest scanRequest() {
-        return ScanRequest.builder().tableName(getTableName())
-                .attributesToGet(USER_ID_COL, USER_USERNAME_COL, USER_FIRSTNAME_COL, USER_LASTNAME_COL, USER_AGE_COL).build();
+        return scanBuilder().build();
     }
 
-    protected PutItemRequest putRequest(User user) {
-        Map<String, AttributeValue> item = new HashMap<>();
-        item.put(USER_USERNAME_COL, AttributeValue.builder().s(user.getUserName()).build());
-        item.put(USER_FIRSTNAME_COL, AttributeValue.builder().s(user.getFirstName()).build());
-        item.put(USER_LASTNAME_COL, AttributeValue.builder().s(user.getLastName()).build());
-        item.put(USER_ID_COL, AttributeValue.builder().s(user.getUserId()).build());
-        item.put(USER_AGE_COL, AttributeValue.builder().n(Integer.valueOf(user.getAge()).toString()).build());
+    protected ScanRequest scanRequest(int limit, Map<String, AttributeValue> exclusiveStartKey) {
+        return scanRequest(limit, exclusiveStartKey, UserQuery.ALL);
+    }
+
+    protected ScanRequest scanRequest(int limit, Map<String, AttributeValue> exclusiveStartKey, UserQuery query) {
+        ScanRequest.Builder builder = scanBuilder()
+                .limit(limit);
+
+        if (query != UserQuery.ALL) {
+            builder.projectionExpression(query.projectionExpression())
+                    .filterExpression(query.filterExpression())
+                    .expressionAttributeNames(query.expressionAttributeNames())
+                    .expressionAttributeValues(query.expressionAttributeValues());
+        }
 
+        if (exclusiveStartKey != null) {
+            builder.exclusiveStartKey(exclusiveStartKey);
+        }
+        return builder.build();
+    }
+
+    protected ScanRequest segmentScanRequest(int segment, int totalSegments, int limit, Map<String, AttributeValue> exclusiveStartKey) {
+        return scanRequest(limit, exclusiveStartKey).toBuilder()
+                .segment(segment)
+                .totalSegments(totalSegments)
+                .build();
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code limit} is not positive
+     */
+    protected static int pageSize(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    protected PutItemRequest putRequest(User user) {
         return PutItemRequest.builder()
                 .tableName(getTableName())
-                .item(item)
+                .item(UserCodec.toItem(user))
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .build();
+    }
+
+    /**
+     * Like {@link #putRequest(User)}, but does not overwrite an existing user.
+     */
+    protected PutItemRequest createItemRequest(User user) {
+        return putRequest(user).toBuilder()
+                .conditionExpression("attribute_not_exists(#userId)")
+                .expressionAttributeNames(Map.of("#userId", USER_ID_COL))
+                .build();
+    }
+
+    /**
+     * Sets the non-null attributes of {@code changes} (and with {@code replace} removes the others) and increments
+     * the version, provided the user exists and is still at {@code expectedVersion}. Version 0 stands for users
+     * written before versioning, which have no version attribute.
+     */
+    protected UpdateItemRequest updateRequest(String userId, User changes, long expectedVersion, boolean replace) {
+        UserUpdate update = new UserUpdate(changes, expectedVersion, replace);
+        return UpdateItemRequest.builder()
+                .tableName(getTableName())
+                .key(UserCodec.key(userId))
+                .updateExpression(update.expression)
+                .conditionExpression(update.condition)
+                .expressionAttributeNames(update.names)
+                .expressionAttributeValues(update.values)
+                .returnValues(ReturnValue.ALL_NEW)
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .build();
+    }
+
+    /**
+     * The update of {@link #updateRequest(String, User, long, boolean)} together with moving the userName
+     * reservation from {@code oldUserName} to the new userName, in one transaction.
+     */
+    protected TransactWriteItemsRequest renameRequest(String userId, User changes, long expectedVersion, boolean replace,
+                                                      String oldUserName) {
+        UserUpdate update = new UserUpdate(changes, expectedVersion, replace);
+        User owner = new User();
+        owner.setUserId(userId);
+        owner.setUserName(changes.getUserName());
+
+        List<TransactWriteItem> items = new ArrayList<>(3);
+        items.add(TransactWriteItem.builder().update(Update.builder()
+                .tableName(getTableName())
+                .key(UserCodec.key(userId))
+                .updateExpression(update.expression)
+                .conditionExpression(update.condition)
+                .expressionAttributeNames(update.names)
+                .expressionAttributeValues(update.values)
+                .build()).build());
+        items.add(TransactWriteItem.builder().put(Put.builder()
+                .tableName(USER_NAMES_TABLE)
+                .item(userNameItem(owner))
+                .conditionExpression("attribute_not_exists(#userName) OR #userId = :userId")
+                .expressionAttributeNames(Map.of("#userName", USER_USERNAME_COL, "#userId", USER_ID_COL))
+                .expressionAttributeValues(Map.of(":userId", AttributeValue.builder().s(userId).build()))
+                .build()).build());
+        if (oldUserName != null) {
+            items.add(TransactWriteItem.builder().delete(Delete.builder()
+                    .tableName(USER_NAMES_TABLE)
+                    .key(Map.of(USER_USERNAME_COL, AttributeValue.builder().s(oldUserName).build()))
+                    .conditionExpression("attribute_not_exists(#userName) OR #userId = :userId")
+                    .expressionAttributeNames(Map.of("#userName", USER_USERNAME_COL, "#userId", USER_ID_COL))
+                    .expressionAttributeValues(Map.of(":userId", AttributeValue.builder().s(userId).build()))
+                    .build()).build());
+        }
+
+        return TransactWriteItemsRequest.builder()
+                .transactItems(items)
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .build();
+    }
+
+    /**
+     * Strongly consistent read of the whole user, to check the outcome of a conditional write.
+     */
+    protected GetItemRequest consistentGetRequest(String userId) {
+        return getRequest(userId).toBuilder()
+                .consistentRead(true)
                 .build();
     }
 
     protected DeleteItemRequest deleteRequest(String userId) {
-        Map<String, AttributeValue> key = new HashMap<>();
-        key.put(USER_ID_COL, AttributeValue.builder().s(userId).build());
+        return DeleteItemRequest.builder()
+                .tableName(getTableName())
+                .key(UserCodec.key(userId))
+                .returnValues(ReturnValue.ALL_OLD)
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .build();
+    }
 
-        return DeleteItemRequest.builder().tableName(getTableName()).key(key).build();
+    protected WriteRequest putWriteRequest(User user) {
+        return WriteRequest.builder()
+                .putRequest(PutRequest.builder().item(putRequest(user).item()).build())
+                .build();
+    }
+
+    protected WriteRequest deleteWriteRequest(String userId) {
+        return WriteRequest.builder()
+                .deleteRequest(DeleteRequest.builder().key(deleteRequest(userId).key()).build())
+                .build();
+    }
+
+    private static ScanRequest.Builder scanBuilder() {
+        return ScanRequest.builder().tableName(USERS_TABLE)
+                .projectionExpression(ALL_COLUMNS_PROJECTION).expressionAttributeNames(ALL_COLUMNS_NAMES)
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+    }
+
+    private static GetItemRequest.Builder getBuilder() {
+        return GetItemRequest.builder().tableName(USERS_TABLE)
+                .projectionExpression(ALL_COLUMNS_PROJECTION).expressionAttributeNames(ALL_COLUMNS_NAMES)
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
     }
 
     protected GetItemRequest getRequest(String userId) {
-        Map<String, AttributeValue> key = new HashMap<>();
-        key.put(USER_ID_COL, AttributeValue.builder().s(userId).build());
+        return getBuilder()
+                .key(UserCodec.key(userId))
+                .build();
+    }
+
+    /**
+     * Only the projection of {@code query} applies, GetItem has no filter.
+     */
+    protected GetItemRequest getRequest(String userId, UserQuery query) {
+        return getBuilder()
+                .key(UserCodec.key(userId))
+                .projectionExpression(query.projectionExpression())
+                .expressionAttributeNames(query.projectionAttributeNames())
+                .build();
+    }
+
+    protected QueryRequest userNameQuery(String userName) {
+        return userNameQuery(userName, UserQuery.ALL);
+    }
+
+    protected QueryRequest userNameQuery(String userName, UserQuery query) {
+        Map<String, String> names = new HashMap<>(query.expressionAttributeNames());
+        names.put("#userName", USER_USERNAME_COL);
+        Map<String, AttributeValue> values = new HashMap<>(4);
+        if (query.expressionAttributeValues() != null) {
+            values.putAll(query.expressionAttributeValues());
+        }
+        values.put(":userName", AttributeValue.builder().s(userName).build());
 
-        return GetItemRequest.builder()
+        return QueryRequest.builder()
                 .tableName(getTableName())
-                .key(key)
-                .attributesToGet(USER_ID_COL, USER_USERNAME_COL, USER_FIRSTNAME_COL, USER_LASTNAME_COL, USER_AGE_COL)
+                .indexName(USER_NAME_INDEX)
+                .keyConditionExpression("#userName = :userName")
+                .projectionExpression(query.projectionExpression())
+                .filterExpression(query.filterExpression())
+                .expressionAttributeNames(names)
+                .expressionAttributeValues(values)
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .build();
+    }
+
+    /**
+     * Writes the user and reserves its userName in one transaction. It is cancelled if the id exists or the
+     * userName is reserved for another user.
+     */
+    protected TransactWriteItemsRequest createRequest(User user) {
+        return TransactWriteItemsRequest.builder()
+                .transactItems(
+                        TransactWriteItem.builder().put(Put.builder()
+                                .tableName(getTableName())
+                                .item(UserCodec.toItem(user))
+                                .conditionExpression("attribute_not_exists(#userId)")
+                                .expressionAttributeNames(Map.of("#userId", USER_ID_COL))
+                                .build()).build(),
+                        TransactWriteItem.builder().put(Put.builder()
+                                .tableName(USER_NAMES_TABLE)
+                                .item(userNameItem(user))
+                                .conditionExpression("attribute_not_exists(#userName) OR #userId = :userId")
+                                .expressionAttributeNames(Map.of("#userName", USER_USERNAME_COL, "#userId", USER_ID_COL))
+                                .expressionAttributeValues(Map.of(":userId", AttributeValue.builder().s(user.getUserId()).build()))
+                                .build()).build())
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .build();
+    }
+
+    /**
+     * Releases the userName, unless it has been reserved for another user in the meantime.
+     */
+    protected DeleteItemRequest releaseUserNameRequest(String userName, String userId) {
+        return DeleteItemRequest.builder()
+                .tableName(USER_NAMES_TABLE)
+                .key(Map.of(USER_USERNAME_COL, AttributeValue.builder().s(userName).build()))
+                .conditionExpression("#userId = :userId")
+                .expressionAttributeNames(Map.of("#userId", USER_ID_COL))
+                .expressionAttributeValues(Map.of(":userId", AttributeValue.builder().s(userId).build()))
+                .build();
+    }
+
+    protected WriteRequest reserveUserNameWriteRequest(User user) {
+        return WriteRequest.builder()
+                .putRequest(PutRequest.builder().item(userNameItem(user)).build())
                 .build();
     }
+
+    protected WriteRequest releaseUserNameWriteRequest(String userName) {
+        return WriteRequest.builder()
+                .deleteRequest(DeleteRequest.builder()
+                        .key(Map.of(USER_USERNAME_COL, AttributeValue.builder().s(userName).build()))
+                        .build())
+                .build();
+    }
+
+    protected BatchGetItemRequest userNamesBatchGetRequest(List<String> userNames) {
+        List<Map<String, AttributeValue>> keys = new ArrayList<>(userNames.size());
+        for (String userName : userNames) {
+            keys.add(Map.of(USER_USERNAME_COL, AttributeValue.builder().s(userName).build()));
+        }
+
+        return BatchGetItemRequest.builder()
+                .requestItems(Map.of(USER_NAMES_TABLE, KeysAndAttributes.builder().keys(keys).build()))
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .build();
+    }
+
+    /**
+     * @return whether the transaction was cancelled because one of its conditions failed
+     */
+    protected static boolean conditionFailed(TransactionCanceledException exc) {
+        for (CancellationReason reason : exc.cancellationReasons()) {
+            if ("ConditionalCheckFailed".equals(reason.code())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Update and condition expressions shared by the plain and the transactional update.
+     */
+    private static final class UserUpdate {
+
+        private final String expression;
+        private final String condition;
+        private final Map<String, String> names = new HashMap<>();
+        private final Map<String, AttributeValue> values = new HashMap<>();
+
+        private UserUpdate(User changes, long expectedVersion, boolean replace) {
+            List<String> set = new ArrayList<>();
+            List<String> remove = new ArrayList<>();
+            attribute(USER_USERNAME_COL, string(changes.getUserName()), replace, set, remove);
+            attribute(USER_FIRSTNAME_COL, string(changes.getFirstName()), replace, set, remove);
+            attribute(USER_LASTNAME_COL, string(changes.getLastName()), replace, set, remove);
+            attribute(USER_AGE_COL, changes.getAge() != null ? number(changes.getAge()) : null, replace, set, remove);
+            attribute(USER_VERSION_COL, number(expectedVersion + 1), false, set, remove);
+
+            expression = "SET " + String.join(", ", set) + (remove.isEmpty() ? "" : " REMOVE " + String.join(", ", remove));
+
+            names.put("#userId", USER_ID_COL);
+            if (expectedVersion == 0) {
+                condition = "attribute_exists(#userId) AND attribute_not_exists(#version)";
+            } else {
+                condition = "attribute_exists(#userId) AND #version = :expectedVersion";
+                values.put(":expectedVersion", number(expectedVersion));
+            }
+        }
+
+        private void attribute(String column, AttributeValue value, boolean replace, List<String> set, List<String> remove) {
+            if (value != null) {
+                names.put("#" + column, column);
+                values.put(":" + column, value);
+                set.add("#" + column + " = :" + column);
+            } else if (replace) {
+                names.put("#" + column, column);
+                remove.add("#" + column);
+            }
+        }
+
+        private static AttributeValue string(String value) {
+            return value != null ? AttributeValue.builder().s(value).build() : null;
+        }
+
+        private static AttributeValue number(long value) {
+            return AttributeValue.builder().n(Long.toString(value)).build();
+        }
+    }
+
+    private static Map<String, AttributeValue> userNameItem(User user) {
+        return Map.of(USER_USERNAME_COL, AttributeValue.builder().s(user.getUserName()).build(),
+                USER_ID_COL, AttributeValue.builder().s(user.getUserId()).build());
+    }
+
+    protected static List<User> toUsers(List<Map<String, AttributeValue>> items) {
+        List<User> users = new ArrayList<>(items.size());
+        for (Map<String, AttributeValue> item : items) {
+            users.add(User.from(item));
+        }
+        return users;
+    }
+
+    protected static UserPage toPage(ScanResponse response) {
+        Double consumedCapacity = response.consumedCapacity() != null ? response.consumedCapacity().capacityUnits() : null;
+        return new UserPage(toUsers(response.items()), PageCursor.encode(response.lastEvaluatedKey()), consumedCapacity);
+    }
+
+    protected BatchGetItemRequest batchGetRequest(List<String> userIds) {
+        List<Map<String, AttributeValue>> keys = new ArrayList<>(userIds.size());
+        for (String userId : userIds) {
+            keys.add(UserCodec.key(userId));
+        }
+
+        return BatchGetItemRequest.builder()
+                .requestItems(Map.of(getTableName(), KeysAndAttributes.builder()
+                        .keys(keys)
+                        .projectionExpression(ALL_COLUMNS_PROJECTION)
+                        .expressionAttributeNames(ALL_COLUMNS_NAMES)
+                        .build()))
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .build();
+    }
+
+    /**
+     * @return {@code #a, #b, ...}, with the names resolved by {@link #attributeNames(List)}
+     */
+    protected static String projectionExpression(List<String> columns) {
+        return "#" + String.join(", #", columns);
+    }
+
+    protected static Map<String, String> attributeNames(List<String> columns) {
+        Map<String, String> names = new HashMap<>(columns.size() * 2);
+        for (String column : columns) {
+            names.put("#" + column, column);
+        }
+        return names;
+    }
+
+    protected static <T> List<List<T>> partition(List<T> items, int size) {
+        List<List<T>> chunks = new ArrayList<>((items.size() + size - 1) / size);
+        for (int from = 0; from < items.size(); from += size) {
+            chunks.add(items.subList(from, Math.min(from + size, items.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * Exponential backoff with full jitter: a random delay between zero and {@code 50ms * 2^attempt},
+     * capped at two seconds.
+     */
+    protected static long backoffMillis(int attempt) {
+        long ceiling = Math.min(BACKOFF_MAX_MILLIS, BACKOFF_BASE_MILLIS << Math.min(attempt, 16));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.SdkResponse;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+import java.util.List;
+
+/**
+ * Records latency, retries, throttles, consumed capacity and items per page of every DynamoDB call into the
+ * {@link InvocationMetrics} of the current invocation. Registered through {@code quarkus.dynamodb.interceptors}, so
+ * it is created by the SDK rather than CDI.
+ */
+public class DynamoDbMetricsInterceptor implements ExecutionInterceptor {
+
+    private static final ExecutionAttribute<Long> START = new ExecutionAttribute<>("UsersMetricsStart");
+    private static final ExecutionAttribute<int[]> ATTEMPTS = new ExecutionAttribute<>("UsersMetricsAttempts");
+    private static final ExecutionAttribute<Integer> LAST_STATUS = new ExecutionAttribute<>("UsersMetricsLastStatus");
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+        executionAttributes.putAttribute(START, System.nanoTime());
+        executionAttributes.putAttribute(ATTEMPTS, new int[1]);
+    }
+
+    @Override
+    public void beforeTransmission(Context.BeforeTransmission context, ExecutionAttributes executionAttributes) {
+        int attempt = ++executionAttributes.getAttribute(ATTEMPTS)[0];
+        // the SDK retries a 400 only for throttling (and clock skew), other client errors fail the call
+        Integer lastStatus = executionAttributes.getAttribute(LAST_STATUS);
+        if (attempt > 1 && lastStatus != null && lastStatus == 400) {
+            InvocationMetrics.current().throttled();
+        }
+    }
+
+    @Override
+    public void afterTransmission(Context.AfterTransmission context, ExecutionAttributes executionAttributes) {
+        executionAttributes.putAttribute(LAST_STATUS, context.httpResponse().statusCode());
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        record(executionAttributes);
+
+        SdkResponse response = context.response();
+        response.getValueForField("ConsumedCapacity", Object.class)
+                .ifPresent(capacity -> InvocationMetrics.current().consumedCapacity(capacityUnits(capacity)));
+
+        if (response instanceof ScanResponse) {
+            InvocationMetrics.current().pageItems(((ScanResponse) response).count());
+        } else if (response instanceof QueryResponse) {
+            InvocationMetrics.current().pageItems(((QueryResponse) response).count());
+        }
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        if (executionAttributes.getAttribute(START) == null) {
+            return;
+        }
+        record(executionAttributes);
+
+        Throwable exception = context.exception();
+        if (exception instanceof AwsServiceException && ((AwsServiceException) exception).isThrottlingException()) {
+            InvocationMetrics.current().throttled();
+        }
+    }
+
+    private static void record(ExecutionAttributes executionAttributes) {
+        double latencyMillis = (System.nanoTime() - executionAttributes.getAttribute(START)) / 1_000_000.0;
+        InvocationMetrics.current().dynamoDbCall(latencyMillis, executionAttributes.getAttribute(ATTEMPTS)[0] - 1);
+    }
+
+    private static double capacityUnits(Object capacity) {
+        // a single value for item operations, one per table for batch operations
+        if (capacity instanceof ConsumedCapacity) {
+            Double units = ((ConsumedCapacity) capacity).capacityUnits();
+            return units != null ? units : 0;
+        }
+        double units = 0;
+        if (capacity instanceof List) {
+            for (Object element : (List<?>) capacity) {
+                units += capacityUnits(element);
+            }
+        }
+        return units;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import com.amazon.example.pojo.User;
+import com.amazon.example.pojo.UserPage;
+
+import java.util.List;
+
+/**
+ * Entity tags for user representations, a 64-bit FNV-1a hash over the user attributes including their version.
+ * They are computed from the objects rather than the serialized body, so a conditional GET is answered without
+ * serializing anything. The consumed capacity of a page is not part of its tag. The same tag describes the identity
+ * and the compressed body, which only a weak validator may do, so tags are sent as {@code W/"..."}.
+ */
+public final class EntityTags {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private EntityTags() {
+    }
+
+    /**
+     * @return the unquoted tag of a {@link User}, {@link UserPage} or list of users, or {@code null} for anything else
+     */
+    public static String of(Object entity) {
+        long hash;
+        if (entity instanceof User) {
+            hash = hash(FNV_OFFSET_BASIS, (User) entity);
+        } else if (entity instanceof UserPage) {
+            UserPage page = (UserPage) entity;
+            hash = hash(hash(FNV_OFFSET_BASIS, page.getUsers()), page.getNextCursor());
+        } else if (entity instanceof List && isUserList((List<?>) entity)) {
+            hash = hash(FNV_OFFSET_BASIS, (List<?>) entity);
+        } else {
+            return null;
+        }
+        return Long.toHexString(hash);
+    }
+
+    /**
+     * Weak comparison as required for {@code If-None-Match}, see RFC 7232 section 3.2.
+     *
+     * @param ifNoneMatch the header value, may be {@code null}
+     * @param tag         an unquoted tag as returned by {@link #of(Object)}
+     */
+    public static boolean matches(String ifNoneMatch, String tag) {
+        if (ifNoneMatch == null || tag == null) {
+            return false;
+        }
+
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*")) {
+                return true;
+            }
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.length() == tag.length() + 2 && value.startsWith("\"") && value.endsWith("\"")
+                    && value.regionMatches(1, tag, 0, tag.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isUserList(List<?> entities) {
+        for (Object entity : entities) {
+            if (!(entity instanceof User)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long hash(long hash, List<?> users) {
+        for (Object user : users) {
+            hash = hash(hash, (User) user);
+        }
+        return hash;
+    }
+
+    private static long hash(long hash, User user) {
+        hash = hash(hash, user.getUserId());
+        hash = hash(hash, user.getUserName());
+        hash = hash(hash, user.getFirstName());
+        hash = hash(hash, user.getLastName());
+        hash = hash(hash, user.getAge() != null ? user.getAge().toString() : null);
+        return hash(hash, user.getVersion() != null ? user.getVersion().toString() : null);
+    }
+
+    private static long hash(long hash, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+            }
+        }
+        // separator, so that null, "" and adjacent values do not collide
+        return (hash ^ (value != null ? 0x1f : 0x1e)) * FNV_PRIME;
+    }
+}
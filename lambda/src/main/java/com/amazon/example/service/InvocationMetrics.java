@@ -0,0 +1,122 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accumulates the metrics of one Lambda invocation and renders them as a single CloudWatch embedded metric format
+ * (EMF) document. CloudWatch derives the request rate and p50/p99 per route from these documents, so nothing is
+ * sent synchronously.
+ * <p>
+ * A container handles one invocation at a time, but batch requests call DynamoDB from several threads.
+ */
+public final class InvocationMetrics {
+
+    public static final String NAMESPACE = "LambdaQuarkus";
+
+    private static final int MAX_VALUES = 100;
+
+    private static final InvocationMetrics CURRENT = new InvocationMetrics();
+
+    private final List<Double> dynamoDbLatencies = new ArrayList<>();
+    private int dynamoDbCalls;
+    private int retries;
+    private int throttles;
+    private double consumedCapacity;
+    private long pageItems;
+
+    private InvocationMetrics() {
+    }
+
+    public static InvocationMetrics current() {
+        return CURRENT;
+    }
+
+    public synchronized void dynamoDbCall(double latencyMillis, int retries) {
+        dynamoDbCalls++;
+        if (dynamoDbLatencies.size() < MAX_VALUES) {
+            dynamoDbLatencies.add(latencyMillis);
+        }
+        this.retries += retries;
+    }
+
+    public synchronized void throttled() {
+        throttles++;
+    }
+
+    public synchronized void consumedCapacity(double units) {
+        consumedCapacity += units;
+    }
+
+    public synchronized void pageItems(int items) {
+        pageItems += items;
+    }
+
+    /**
+     * Returns the EMF document for the invocation and resets the accumulated values.
+     */
+    public synchronized Map<String, Object> flush(String route, int statusCode, double latencyMillis) {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("Latency", latencyMillis);
+        metrics.put("DynamoDbCalls", dynamoDbCalls);
+        if (!dynamoDbLatencies.isEmpty()) {
+            metrics.put("DynamoDbLatency", new ArrayList<>(dynamoDbLatencies));
+        }
+        metrics.put("DynamoDbRetries", retries);
+        metrics.put("DynamoDbThrottles", throttles);
+        metrics.put("ConsumedCapacity", consumedCapacity);
+        metrics.put("PageItems", pageItems);
+
+        List<Map<String, String>> definitions = new ArrayList<>(metrics.size());
+        for (String name : metrics.keySet()) {
+            definitions.add(Map.of("Name", name, "Unit", unit(name)));
+        }
+
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("_aws", Map.of(
+                "Timestamp", System.currentTimeMillis(),
+                "CloudWatchMetrics", List.of(Map.of(
+                        "Namespace", NAMESPACE,
+                        "Dimensions", List.of(List.of("Route")),
+                        "Metrics", definitions))));
+        document.put("Route", route);
+        document.put("StatusCode", statusCode);
+        document.putAll(metrics);
+
+        reset();
+        return document;
+    }
+
+    public synchronized void reset() {
+        dynamoDbLatencies.clear();
+        dynamoDbCalls = 0;
+        retries = 0;
+        throttles = 0;
+        consumedCapacity = 0;
+        pageItems = 0;
+    }
+
+    private static String unit(String name) {
+        if (name.endsWith("Latency")) {
+            return "Milliseconds";
+        }
+        return name.equals("ConsumedCapacity") ? "None" : "Count";
+    }
+}
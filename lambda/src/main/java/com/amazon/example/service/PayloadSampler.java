@@ -0,0 +1,45 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides per route whether the full request or response payload of a request is logged. Rates are configured as
+ * {@code <method> <route template>:<rate>}, e.g. {@code POST /users:0.1}; routes without a rate are never sampled.
+ */
+public final class PayloadSampler {
+
+    private final Map<String, Double> rates = new HashMap<>();
+
+    public PayloadSampler(List<String> rates) {
+        for (String rate : rates) {
+            int separator = rate.lastIndexOf(':');
+            if (separator < 1) {
+                throw new IllegalArgumentException("Expected <method> <route>:<rate> but got " + rate);
+            }
+            this.rates.put(rate.substring(0, separator).trim(), Double.valueOf(rate.substring(separator + 1).trim()));
+        }
+    }
+
+    public boolean sample(String route) {
+        Double rate = rates.get(route);
+        return rate != null && (rate >= 1 || ThreadLocalRandom.current().nextDouble() < rate);
+    }
+}
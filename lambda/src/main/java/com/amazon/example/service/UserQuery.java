@@ -0,0 +1,204 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import com.amazon.example.pojo.User;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.amazon.example.service.AbstractService.USER_AGE_COL;
+import static com.amazon.example.service.AbstractService.USER_COLUMNS;
+import static com.amazon.example.service.AbstractService.USER_FIRSTNAME_COL;
+import static com.amazon.example.service.AbstractService.USER_ID_COL;
+import static com.amazon.example.service.AbstractService.USER_LASTNAME_COL;
+import static com.amazon.example.service.AbstractService.USER_USERNAME_COL;
+import static com.amazon.example.service.AbstractService.USER_VERSION_COL;
+
+/**
+ * Attributes and filters requested for a user listing or lookup. They are sent to DynamoDB as
+ * {@code ProjectionExpression} and {@code FilterExpression}, so only the requested attributes of matching items
+ * cross the wire and get mapped.
+ * <p>
+ * DynamoDB filters after reading: a filtered page consumes the same capacity as an unfiltered one and may hold
+ * fewer than {@code limit} users, or none, while still having a next cursor.
+ */
+public final class UserQuery {
+
+    public static final UserQuery ALL = new UserQuery(USER_COLUMNS, null, null, null);
+
+    private final List<String> fields;
+    private final Integer minAge;
+    private final Integer maxAge;
+    private final String lastNamePrefix;
+
+    private UserQuery(List<String> fields, Integer minAge, Integer maxAge, String lastNamePrefix) {
+        this.fields = fields;
+        this.minAge = minAge;
+        this.maxAge = maxAge;
+        this.lastNamePrefix = lastNamePrefix;
+    }
+
+    /**
+     * @param fields comma-separated attributes to return, {@code null} for all of them; userId is always returned
+     * @throws IllegalArgumentException for unknown fields or an invalid age range
+     */
+    public static UserQuery of(String fields, Integer minAge, Integer maxAge, String lastNamePrefix) {
+        if ((minAge != null && minAge < 0) || (maxAge != null && maxAge < 0)) {
+            throw new IllegalArgumentException("minAge and maxAge must not be negative");
+        }
+        if (minAge != null && maxAge != null && minAge > maxAge) {
+            throw new IllegalArgumentException("minAge must not be greater than maxAge");
+        }
+
+        List<String> columns = fields != null ? parseFields(fields) : USER_COLUMNS;
+        String prefix = lastNamePrefix != null && !lastNamePrefix.isEmpty() ? lastNamePrefix : null;
+        if (columns.size() == USER_COLUMNS.size() && minAge == null && maxAge == null && prefix == null) {
+            return ALL;
+        }
+        return new UserQuery(columns, minAge, maxAge, prefix);
+    }
+
+    public boolean selectsAllFields() {
+        return fields.size() == USER_COLUMNS.size();
+    }
+
+    public boolean isFiltered() {
+        return minAge != null || maxAge != null || lastNamePrefix != null;
+    }
+
+    /**
+     * Applies the projection to a fully loaded user, e.g. one served from the cache.
+     */
+    public User project(User user) {
+        if (selectsAllFields() || user.getUserId() == null) {
+            return user;
+        }
+
+        User projected = new User();
+        projected.setUserId(user.getUserId());
+        if (fields.contains(USER_USERNAME_COL)) {
+            projected.setUserName(user.getUserName());
+        }
+        if (fields.contains(USER_FIRSTNAME_COL)) {
+            projected.setFirstName(user.getFirstName());
+        }
+        if (fields.contains(USER_LASTNAME_COL)) {
+            projected.setLastName(user.getLastName());
+        }
+        if (fields.contains(USER_AGE_COL)) {
+            projected.setAge(user.getAge());
+        }
+        if (fields.contains(USER_VERSION_COL)) {
+            projected.setVersion(user.getVersion());
+        }
+        return projected;
+    }
+
+    String projectionExpression() {
+        return AbstractService.projectionExpression(fields);
+    }
+
+    Map<String, String> projectionAttributeNames() {
+        return AbstractService.attributeNames(fields);
+    }
+
+    /**
+     * @return the filter, or {@code null} if there is none
+     */
+    String filterExpression() {
+        if (!isFiltered()) {
+            return null;
+        }
+
+        List<String> conditions = new ArrayList<>(2);
+        if (minAge != null && maxAge != null) {
+            conditions.add("#age BETWEEN :minAge AND :maxAge");
+        } else if (minAge != null) {
+            conditions.add("#age >= :minAge");
+        } else if (maxAge != null) {
+            conditions.add("#age <= :maxAge");
+        }
+        if (lastNamePrefix != null) {
+            conditions.add("begins_with(#lastName, :lastNamePrefix)");
+        }
+        return String.join(" AND ", conditions);
+    }
+
+    /**
+     * @return the names used by the projection and the filter; DynamoDB rejects names that are not used
+     */
+    Map<String, String> expressionAttributeNames() {
+        Map<String, String> names = new HashMap<>(projectionAttributeNames());
+        if (minAge != null || maxAge != null) {
+            names.put("#" + USER_AGE_COL, USER_AGE_COL);
+        }
+        if (lastNamePrefix != null) {
+            names.put("#" + USER_LASTNAME_COL, USER_LASTNAME_COL);
+        }
+        return names;
+    }
+
+    /**
+     * @return the filter values, or {@code null} if there are none as DynamoDB rejects an empty map
+     */
+    Map<String, AttributeValue> expressionAttributeValues() {
+        if (!isFiltered()) {
+            return null;
+        }
+
+        Map<String, AttributeValue> values = new HashMap<>(4);
+        if (minAge != null) {
+            values.put(":minAge", AttributeValue.builder().n(minAge.toString()).build());
+        }
+        if (maxAge != null) {
+            values.put(":maxAge", AttributeValue.builder().n(maxAge.toString()).build());
+        }
+        if (lastNamePrefix != null) {
+            values.put(":lastNamePrefix", AttributeValue.builder().s(lastNamePrefix).build());
+        }
+        return values;
+    }
+
+    private static List<String> parseFields(String fields) {
+        Set<String> requested = new HashSet<>();
+        requested.add(USER_ID_COL);
+        for (String field : fields.split(",")) {
+            String column = field.trim();
+            if (column.isEmpty()) {
+                continue;
+            }
+            if (!USER_COLUMNS.contains(column)) {
+                throw new IllegalArgumentException("Unknown field " + column + ", expected one of " + USER_COLUMNS);
+            }
+            requested.add(column);
+        }
+
+        // table order, so that the same selection always results in the same expression
+        List<String> columns = new ArrayList<>(requested.size());
+        for (String column : USER_COLUMNS) {
+            if (requested.contains(column)) {
+                columns.add(column);
+            }
+        }
+        return columns;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import com.amazon.example.pojo.UserStats;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.amazon.example.service.AbstractService.USER_STATS_ID_COL;
+import static com.amazon.example.service.AbstractService.USER_STATS_TABLE;
+
+/**
+ * Counters kept up to date by {@code UserStatsLambda} from the stream of the Users table. All counters are numeric
+ * attributes of one item, so {@link #get()} is a single {@code GetItem} however many users there are.
+ */
+@ApplicationScoped
+public class UserStatsService {
+
+    public static final String USER_COUNT = "userCount";
+
+    private static final String AGE_PREFIX = "age_";
+    private static final Map<String, AttributeValue> KEY = Map.of(USER_STATS_ID_COL, AttributeValue.builder().s("users").build());
+
+    @Inject
+    DynamoDbClient dynamoDB;
+
+    public UserStats get() {
+        Map<String, AttributeValue> item = dynamoDB.getItem(GetItemRequest.builder()
+                .tableName(USER_STATS_TABLE)
+                .key(KEY)
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .build()).item();
+
+        long userCount = 0;
+        Map<String, Long> ageBuckets = new TreeMap<>();
+        for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+            String name = attribute.getKey();
+            if (name.equals(USER_COUNT)) {
+                userCount = Long.parseLong(attribute.getValue().n());
+            } else if (name.startsWith(AGE_PREFIX)) {
+                long count = Long.parseLong(attribute.getValue().n());
+                if (count != 0) {
+                    ageBuckets.put(name.substring(AGE_PREFIX.length()), count);
+                }
+            }
+        }
+        return new UserStats(userCount, ageBuckets);
+    }
+
+    /**
+     * Adds all deltas in one atomic {@code UpdateItem}; counters that do not exist yet start at zero.
+     *
+     * @param deltas by counter, {@link #USER_COUNT} or {@link #ageCounter(Integer)}
+     */
+    public void add(Map<String, Long> deltas) {
+        StringBuilder expression = new StringBuilder();
+        Map<String, String> names = new HashMap<>();
+        Map<String, AttributeValue> values = new HashMap<>();
+        for (Map.Entry<String, Long> delta : deltas.entrySet()) {
+            if (delta.getValue() == 0) {
+                continue;
+            }
+            int i = names.size();
+            expression.append(i == 0 ? "ADD " : ", ").append("#c").append(i).append(" :d").append(i);
+            names.put("#c" + i, delta.getKey());
+            values.put(":d" + i, AttributeValue.builder().n(delta.getValue().toString()).build());
+        }
+        if (names.isEmpty()) {
+            return;
+        }
+
+        dynamoDB.updateItem(UpdateItemRequest.builder()
+                .tableName(USER_STATS_TABLE)
+                .key(KEY)
+                .updateExpression(expression.toString())
+                .expressionAttributeNames(names)
+                .expressionAttributeValues(values)
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .build());
+    }
+
+    /**
+     * @return the counter of the decade the age falls into, users of 90 and older and users without an age share one
+     */
+    public static String ageCounter(Integer age) {
+        if (age == null || age < 0) {
+            return AGE_PREFIX + "unknown";
+        }
+        if (age >= 90) {
+            return AGE_PREFIX + "90+";
+        }
+        int decade = age / 10 * 10;
+        return AGE_PREFIX + decade + "-" + (decade + 9);
+    }
+}
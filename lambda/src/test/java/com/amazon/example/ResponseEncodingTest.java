@@ -0,0 +1,109 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ResponseEncodingTest {
+
+    private static final String LARGE_BODY = "{\"users\":[" + "{\"userName\":\"jdoe\"},".repeat(100) + "{}]}";
+
+    @Test
+    public void negotiatesByQuality() {
+        assertEquals("gzip", ResponseEncoding.negotiate("gzip, deflate"));
+        assertEquals("deflate", ResponseEncoding.negotiate("gzip;q=0.5, deflate"));
+        assertEquals("deflate", ResponseEncoding.negotiate("br, DEFLATE;q=0.8"));
+        assertEquals("gzip", ResponseEncoding.negotiate("deflate;q=0.5, gzip;q=0.5, gzip;q=0.9"));
+    }
+
+    @Test
+    public void negotiatesIdentityWhenNothingIsAcceptable() {
+        assertNull(ResponseEncoding.negotiate(null));
+        assertNull(ResponseEncoding.negotiate("br, identity"));
+        assertNull(ResponseEncoding.negotiate("gzip;q=0, deflate;q=0"));
+        assertNull(ResponseEncoding.negotiate("gzip;q=invalid"));
+    }
+
+    @Test
+    public void compressesLargeBodies() throws IOException {
+        for (String encoding : new String[]{"gzip", "deflate"}) {
+            APIGatewayProxyResponseEvent response = ResponseEncoding.encode(response(LARGE_BODY), encoding);
+
+            assertEquals(encoding, response.getHeaders().get("Content-Encoding"));
+            assertEquals("application/json", response.getHeaders().get("Content-Type"));
+            assertTrue(response.getIsBase64Encoded());
+            assertEquals(LARGE_BODY, decompress(response.getBody(), encoding));
+        }
+    }
+
+    @Test
+    public void leavesSmallAndUnnegotiatedBodiesAlone() {
+        APIGatewayProxyResponseEvent small = response("{}");
+        assertSame(small, ResponseEncoding.encode(small, "gzip"));
+        assertNull(small.getHeaders().get("Content-Encoding"));
+
+        APIGatewayProxyResponseEvent identity = response(LARGE_BODY);
+        assertSame(identity, ResponseEncoding.encode(identity, null));
+        assertEquals(LARGE_BODY, identity.getBody());
+
+        APIGatewayProxyResponseEvent empty = new APIGatewayProxyResponseEvent().withStatusCode(204);
+        assertSame(empty, ResponseEncoding.encode(empty, "gzip"));
+    }
+
+    @Test
+    public void readsBase64BodiesAndHeadersInAnyCase() {
+        APIGatewayProxyRequestEvent request = new APIGatewayProxyRequestEvent()
+                .withIsBase64Encoded(true)
+                .withBody(Base64.getEncoder().encodeToString("{\"a\":1}".getBytes(StandardCharsets.UTF_8)))
+                .withHeaders(Map.of("accept-encoding", "gzip"));
+
+        assertEquals("{\"a\":1}", ResponseEncoding.body(request));
+        assertEquals("gzip", ResponseEncoding.header(request, "Accept-Encoding"));
+        assertNull(ResponseEncoding.header(request, "If-None-Match"));
+    }
+
+    private static APIGatewayProxyResponseEvent response(String body) {
+        return new APIGatewayProxyResponseEvent()
+                .withStatusCode(200)
+                .withHeaders(Map.of("Content-Type", "application/json"))
+                .withBody(body);
+    }
+
+    private static String decompress(String body, String encoding) throws IOException {
+        byte[] compressed = Base64.getDecoder().decode(body);
+        try (InputStream in = encoding.equals("gzip")
+                ? new GZIPInputStream(new ByteArrayInputStream(compressed))
+                : new InflaterInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RouterTest {
+
+    private final Router.Handler getUser = request -> new APIGatewayProxyResponseEvent().withBody("getUser");
+    private final Router.Handler deleteUser = request -> new APIGatewayProxyResponseEvent().withBody("deleteUser");
+    private final Router.Handler getStats = request -> new APIGatewayProxyResponseEvent().withBody("getStats");
+
+    // registered parameter first, so precedence does not depend on insertion order
+    private final Router router = new Router()
+            .add("GET", "/users/{userId}", getUser)
+            .add("DELETE", "/users/{userId}", deleteUser)
+            .add("GET", "/users/stats", getStats);
+
+    @Test
+    public void resolvesByResourceTemplate() {
+        assertSame(getUser, router.resolve(request("GET", "/users/{userId}", "/users/jdoe")));
+        assertSame(deleteUser, router.resolve(request("DELETE", "/users/{userId}", "/users/jdoe")));
+        assertSame(getStats, router.resolve(request("GET", "/users/stats", "/users/stats")));
+    }
+
+    @Test
+    public void prefersLiteralSegmentsWhenMatchingPaths() {
+        APIGatewayProxyRequestEvent stats = request("GET", null, "/users/stats");
+        assertSame(getStats, router.resolve(stats));
+        assertEquals("/users/stats", stats.getResource());
+        assertNull(stats.getPathParameters());
+
+        APIGatewayProxyRequestEvent user = request("GET", null, "/users/jdoe");
+        assertSame(getUser, router.resolve(user));
+        assertEquals("/users/{userId}", user.getResource());
+        assertEquals(Map.of("userId", "jdoe"), user.getPathParameters());
+    }
+
+    @Test
+    public void tellsUnknownMethodsFromUnknownResources() {
+        for (String resource : new String[]{"/users/{userId}", null}) {
+            APIGatewayProxyRequestEvent put = request("PUT", resource, "/users/jdoe");
+            assertNull(router.resolve(put));
+            assertTrue(router.allows(put), "405 for " + resource);
+        }
+
+        APIGatewayProxyRequestEvent unknown = request("GET", null, "/users/jdoe/groups");
+        assertNull(router.resolve(unknown));
+        assertFalse(router.allows(unknown), "404 for an unknown path");
+
+        APIGatewayProxyRequestEvent missing = request("GET", null, null);
+        assertNull(router.resolve(missing));
+        assertFalse(router.allows(missing));
+    }
+
+    private static APIGatewayProxyRequestEvent request(String method, String resource, String path) {
+        return new APIGatewayProxyRequestEvent().withHttpMethod(method).withResource(resource).withPath(path);
+    }
+}
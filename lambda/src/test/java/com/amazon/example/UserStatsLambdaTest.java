@@ -0,0 +1,80 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example;
+
+import com.amazon.example.service.UserStatsService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Feeds recorded DynamoDB stream events from {@code src/test/resources/streams} through the stats handler, no AWS
+ * account needed.
+ */
+public class UserStatsLambdaTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void insertsCountUsersPerAgeBucket() throws IOException {
+        assertEquals(Map.of("userCount", 3L, "age_20-29", 2L, "age_unknown", 1L),
+                UserStatsLambda.deltas(event("inserts.json")));
+    }
+
+    @Test
+    public void modificationsOnlyMoveUsersBetweenBuckets() throws IOException {
+        assertEquals(Map.of("userCount", -1L, "age_20-29", -2L, "age_30-39", 1L),
+                UserStatsLambda.deltas(event("updates-and-removes.json")));
+    }
+
+    @Test
+    public void countsAgesThatAreNotIntegersAsUnknown() throws IOException {
+        assertEquals(Map.of("userCount", 2L, "age_unknown", 1L, "age_30-39", 1L),
+                UserStatsLambda.deltas(event("invalid-ages.json")));
+    }
+
+    @Test
+    public void appliesEachBatchOnce() throws IOException {
+        List<Map<String, Long>> applied = new ArrayList<>();
+        UserStatsLambda handler = new UserStatsLambda();
+        handler.statsService = new UserStatsService() {
+            @Override
+            public void add(Map<String, Long> deltas) {
+                applied.add(deltas);
+            }
+        };
+
+        handler.handleRequest(event("inserts.json"), null);
+        handler.handleRequest(event("updates-and-removes.json"), null);
+
+        assertEquals(2, applied.size());
+        assertEquals(3L, applied.get(0).get(UserStatsService.USER_COUNT));
+    }
+
+    private JsonNode event(String name) throws IOException {
+        try (InputStream in = getClass().getResourceAsStream("/streams/" + name)) {
+            return mapper.readTree(in);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PageCursorTest {
+
+    @Test
+    public void roundTripsTheLastEvaluatedKey() {
+        for (String userId : new String[]{"a700af5b-af80-4a6d-acfd-a9881568ebdd", "j&d=e/+ ü"}) {
+            Map<String, AttributeValue> key = Map.of(AbstractService.USER_ID_COL, AttributeValue.builder().s(userId).build());
+
+            String cursor = PageCursor.encode(key);
+            assertTrue(cursor.matches("[A-Za-z0-9_-]+"), cursor);
+            assertEquals(key, PageCursor.decode(cursor));
+        }
+    }
+
+    @Test
+    public void treatsMissingKeysAsNoCursor() {
+        assertNull(PageCursor.encode(null));
+        assertNull(PageCursor.encode(Map.of()));
+        assertNull(PageCursor.decode(null));
+        assertNull(PageCursor.decode(""));
+    }
+
+    @Test
+    public void rejectsTamperedCursors() {
+        String[] cursors = {
+                "not base64!",
+                raw("userId"),
+                raw("userId=S"),
+                raw("userId=X:jdoe"),
+                raw("=S:jdoe"),
+                raw("password=S:jdoe"),
+                raw("userId=S:jdoe&password=S:secret")
+        };
+        for (String cursor : cursors) {
+            assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(cursor), cursor);
+        }
+    }
+
+    private static String raw(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ */
+package com.amazon.example.service;
+
+import com.amazon.example.pojo.UserStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class UserStatsServiceTest {
+
+    private final CountingDynamoDbClient dynamoDB = new CountingDynamoDbClient();
+    private UserStatsService service;
+
+    @BeforeEach
+    public void setUp() {
+        service = new UserStatsService();
+        service.dynamoDB = dynamoDB;
+    }
+
+    @Test
+    public void addsAllDeltasInOneUpdate() {
+        Map<String, Long> deltas = new LinkedHashMap<>();
+        deltas.put(UserStatsService.USER_COUNT, 3L);
+        deltas.put(UserStatsService.ageCounter(25), 2L);
+        deltas.put(UserStatsService.ageCounter(null), 1L);
+        service.add(deltas);
+        service.add(Map.of(UserStatsService.USER_COUNT, -1L, UserStatsService.ageCounter(27), -2L, UserStatsService.ageCounter(95), 1L));
+        service.add(Map.of());
+
+        assertEquals(2, dynamoDB.updates.size());
+        assertEquals("ADD #c0 :d0, #c1 :d1, #c2 :d2", dynamoDB.updates.get(0).updateExpression());
+
+        UserStats stats = service.get();
+        assertEquals(2, stats.getUserCount());
+        // emptied buckets are left out
+        assertEquals(Map.of("90+", 1L, "unknown", 1L), stats.getAgeBuckets());
+    }
+
+    @Test
+    public void readsZeroBeforeTheFirstUpdate() {
+        UserStats stats = service.get();
+        assertEquals(0, stats.getUserCount());
+        assertEquals(Map.of(), stats.getAgeBuckets());
+    }
+
+    /**
+     * Applies {@code ADD} updates to a single item, enough for the expressions built by {@link UserStatsService}.
+     */
+    private static final class CountingDynamoDbClient implements DynamoDbClient {
+
+        final List<UpdateItemRequest> updates = new ArrayList<>();
+        final Map<String, Long> counters = new HashMap<>();
+
+        @Override
+        public UpdateItemResponse updateItem(UpdateItemRequest request) {
+            updates.add(request);
+            for (String term : request.updateExpression().substring("ADD ".length()).split(", ")) {
+                String[] operands = term.split(" ");
+                String counter = request.expressionAttributeNames().get(operands[0]);
+                long delta = Long.parseLong(request.expressionAttributeValues().get(operands[1]).n());
+                counters.merge(counter, delta, Long::sum);
+            }
+            return UpdateItemResponse.builder().build();
+        }
+
+        @Override
+        public GetItemResponse getItem(GetItemRequest request) {
+            if (counters.isEmpty()) {
+                return GetItemResponse.builder().build();
+            }
+            Map<String, AttributeValue> item = new HashMap<>(request.key());
+            counters.forEach((counter, value) -> item.put(counter, AttributeValue.builder().n(value.toString()).build()));
+            return GetItemResponse.builder().item(item).build();
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}